@@ -0,0 +1,50 @@
+package net.olegg.bezierclock.benchmarks;
+
+import net.olegg.bezierclock.core.BezierAnimator;
+import net.olegg.bezierclock.core.MorphTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Single digit morph step, direct cosine interpolation against baked keyframes.
+ */
+@State(Scope.Thread)
+public class AnimatorBenchmark {
+    @Param({"16", "32", "64"})
+    public int keyframes;
+
+    private final BezierAnimator direct = new BezierAnimator(1.0f, 1.0f);
+    private final BezierAnimator baked = new BezierAnimator(1.0f, 1.0f);
+    private float ratio;
+
+    @Setup
+    public void setUp() {
+        MorphTable table = new MorphTable(keyframes);
+        table.prepare();
+        baked.setMorphTable(table);
+    }
+
+    private float nextRatio() {
+        ratio += 0.0161f;
+        if (ratio >= 1.0f) {
+            ratio -= 1.0f;
+        }
+        return ratio;
+    }
+
+    @Benchmark
+    public float[] update() {
+        direct.update(4, 5, nextRatio());
+        return direct.points;
+    }
+
+    @Benchmark
+    public float[] updateBaked() {
+        baked.update(4, 5, nextRatio());
+        return baked.points;
+    }
+}
@@ -0,0 +1,59 @@
+package net.olegg.bezierclock.benchmarks;
+
+import net.olegg.bezierclock.core.ClockFrame;
+import net.olegg.bezierclock.core.ClockLayout;
+import net.olegg.bezierclock.core.DigitPath;
+import net.olegg.bezierclock.core.FixedClockFrame;
+import net.olegg.bezierclock.core.PathSink;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Float against fixed-point frames at 60 fps, recomputing every digit and emitting it
+ * as path commands, which is where the float mode adds the shifts.
+ */
+@State(Scope.Thread)
+public class FixedPointBenchmark {
+    private final ClockFrame frame = new ClockFrame();
+    private final FixedClockFrame fixedFrame = new FixedClockFrame();
+    private final CountingSink sink = new CountingSink();
+    private final TimeWalk time = new TimeWalk(TimeWalk.BEFORE_MIDNIGHT);
+
+    @Benchmark
+    public float floats() {
+        frame.reset();
+        frame.update(time.next());
+        sink.sum = 0.0f;
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            DigitPath.build(sink, ClockLayout.SHIFTS[i], frame.points, i * ClockFrame.STRIDE);
+        }
+        return sink.sum;
+    }
+
+    @Benchmark
+    public float fixed() {
+        fixedFrame.reset();
+        fixedFrame.update(time.next());
+        sink.sum = 0.0f;
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            fixedFrame.build(sink, i);
+        }
+        return sink.sum;
+    }
+
+    private static class CountingSink implements PathSink {
+        float sum;
+
+        @Override
+        public void moveTo(float x, float y) {
+            sum += x + y;
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            sum += x3 + y3;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package net.olegg.bezierclock.benchmarks;
+
+import net.olegg.bezierclock.core.ClockFrame;
+import net.olegg.bezierclock.core.ClockGrid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.TimeZone;
+
+/**
+ * World clocks at 60 fps across a minute change. {@code frames} keeps a ClockFrame per zone,
+ * {@code grid} shares digit states between the zones.
+ */
+@State(Scope.Thread)
+public class GridBenchmark {
+    // 10 s before a full hour in UTC
+    private static final long START = 1760000000000L / 3600000L * 3600000L - 10000L;
+    private static final String[] ZONES = {
+            "UTC", "Europe/London", "Europe/Berlin", "Europe/Moscow", "Asia/Dubai",
+            "Asia/Kolkata", "Asia/Kathmandu", "Asia/Shanghai", "Asia/Tokyo", "Australia/Sydney",
+            "Pacific/Auckland", "America/New_York", "America/Chicago", "America/Denver", "America/Los_Angeles",
+            "America/Sao_Paulo", "Africa/Cairo", "Asia/Singapore", "America/St_Johns", "Pacific/Honolulu"};
+
+    @Param({"1", "20"})
+    public int clocks;
+
+    private TimeZone[] timeZones;
+    private ClockFrame[] frames;
+    private ClockGrid grid;
+    private final TimeWalk time = new TimeWalk(START);
+
+    @Setup
+    public void setUp() {
+        timeZones = new TimeZone[clocks];
+        frames = new ClockFrame[clocks];
+        for (int i = 0; i < clocks; ++i) {
+            timeZones[i] = TimeZone.getTimeZone(ZONES[i]);
+            frames[i] = new ClockFrame();
+        }
+        grid = new ClockGrid(timeZones);
+    }
+
+    @Benchmark
+    public int frames() {
+        long now = time.next();
+        int changed = 0;
+        for (int i = 0; i < clocks; ++i) {
+            changed |= frames[i].update(now + timeZones[i].getOffset(now));
+        }
+        return changed;
+    }
+
+    @Benchmark
+    public int grid() {
+        return grid.update(time.next());
+    }
+}
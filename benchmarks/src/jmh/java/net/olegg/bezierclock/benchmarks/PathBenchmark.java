@@ -0,0 +1,103 @@
+package net.olegg.bezierclock.benchmarks;
+
+import net.olegg.bezierclock.core.ClockFrame;
+import net.olegg.bezierclock.core.ClockLayout;
+import net.olegg.bezierclock.core.DigitPath;
+import net.olegg.bezierclock.core.PathSink;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Path construction for a whole frame, into a sink that only records the commands
+ * and into one that flattens every cubic into a fixed number of lines, the way a
+ * software canvas has to before it can stroke.
+ */
+@State(Scope.Thread)
+public class PathBenchmark {
+    @Param({"8", "16", "32"})
+    public int steps;
+
+    private final ClockFrame frame = new ClockFrame();
+    private final RecordingSink recording = new RecordingSink();
+    private FlatteningSink flattening;
+
+    @Setup
+    public void setUp() {
+        frame.update(86398500L);
+        flattening = new FlatteningSink(steps);
+    }
+
+    @Benchmark
+    public int build() {
+        recording.count = 0;
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            DigitPath.build(recording, ClockLayout.SHIFTS[i], frame.points, i * ClockFrame.STRIDE);
+        }
+        return recording.count;
+    }
+
+    @Benchmark
+    public int flatten() {
+        flattening.count = 0;
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            DigitPath.build(flattening, ClockLayout.SHIFTS[i], frame.points, i * ClockFrame.STRIDE);
+        }
+        return flattening.count;
+    }
+
+    private static class RecordingSink implements PathSink {
+        final float[] commands = new float[ClockFrame.COUNT * ClockFrame.STRIDE];
+        int count;
+
+        @Override
+        public void moveTo(float x, float y) {
+            commands[count++] = x;
+            commands[count++] = y;
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            commands[count++] = x1;
+            commands[count++] = y1;
+            commands[count++] = x2;
+            commands[count++] = y2;
+            commands[count++] = x3;
+            commands[count++] = y3;
+        }
+    }
+
+    private static class FlatteningSink implements PathSink {
+        final int steps;
+        final float[] lines;
+        int count;
+        float x0, y0;
+
+        FlatteningSink(int steps) {
+            this.steps = steps;
+            lines = new float[ClockFrame.COUNT * 4 * steps * 2];
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            x0 = x;
+            y0 = y;
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            for (int i = 1; i <= steps; ++i) {
+                float t = (float)i / steps;
+                float u = 1 - t;
+                float a = u * u * u, b = 3 * u * u * t, c = 3 * u * t * t, d = t * t * t;
+                lines[count++] = a * x0 + b * x1 + c * x2 + d * x3;
+                lines[count++] = a * y0 + b * y1 + c * y2 + d * y3;
+            }
+            x0 = x3;
+            y0 = y3;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package net.olegg.bezierclock.benchmarks;
+
+import net.olegg.bezierclock.core.ClockFrame;
+import net.olegg.bezierclock.core.ClockLayout;
+import net.olegg.bezierclock.core.DigitPath;
+import net.olegg.bezierclock.core.DigitPolyline;
+import net.olegg.bezierclock.core.DigitRasterizer;
+import net.olegg.bezierclock.core.PathSink;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Path commands against forward-differenced lines for a whole frame at watch and phone widths,
+ * both on their own and stroked by the software rasterizer, which flattens paths by subdivision.
+ */
+@State(Scope.Thread)
+public class PolylineBenchmark {
+    @Param({"320", "1080"})
+    public int width;
+
+    private final ClockFrame frame = new ClockFrame();
+    private final DigitPolyline polyline = new DigitPolyline();
+    private final CountingSink sink = new CountingSink();
+    private DigitRasterizer rasterizer;
+
+    @Setup
+    public void setUp() {
+        frame.update(86398500L);
+        int height = Math.round(width * ClockLayout.HEIGHT / ClockLayout.WIDTH);
+        rasterizer = new DigitRasterizer(width, height);
+        rasterizer.setTransform(ClockLayout.WIDTH, ClockLayout.HEIGHT);
+        rasterizer.setStrokeWidth(20.0f);
+        polyline.setScale(width / ClockLayout.WIDTH);
+    }
+
+    @Benchmark
+    public int path() {
+        sink.count = 0;
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            DigitPath.build(sink, ClockLayout.SHIFTS[i], frame.points, i * ClockFrame.STRIDE);
+        }
+        return sink.count;
+    }
+
+    @Benchmark
+    public int lines() {
+        int count = 0;
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            polyline.build(ClockLayout.SHIFTS[i], frame.points, i * ClockFrame.STRIDE);
+            count += polyline.getCount();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int renderPath() {
+        rasterizer.clear();
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            rasterizer.draw(ClockLayout.SHIFTS[i], frame.points, i * ClockFrame.STRIDE);
+        }
+        return rasterizer.getSegmentCount();
+    }
+
+    @Benchmark
+    public int renderLines() {
+        rasterizer.clear();
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            polyline.build(ClockLayout.SHIFTS[i], frame.points, i * ClockFrame.STRIDE);
+            rasterizer.drawLines(polyline.getLines(), 0, polyline.getCount());
+        }
+        return rasterizer.getSegmentCount();
+    }
+
+    private static class CountingSink implements PathSink {
+        int count;
+
+        @Override
+        public void moveTo(float x, float y) {
+            count++;
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package net.olegg.bezierclock.benchmarks;
+
+import net.olegg.bezierclock.core.ClockFrame;
+import net.olegg.bezierclock.core.ClockLayout;
+import net.olegg.bezierclock.core.DigitRasterizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Software rendering of a whole frame at watch and phone widths.
+ */
+@State(Scope.Thread)
+public class RasterizerBenchmark {
+    @Param({"320", "1080"})
+    public int width;
+
+    private final ClockFrame frame = new ClockFrame();
+    private DigitRasterizer rasterizer;
+
+    @Setup
+    public void setUp() {
+        frame.update(86398500L);
+        int height = Math.round(width * ClockLayout.HEIGHT / ClockLayout.WIDTH);
+        rasterizer = new DigitRasterizer(width, height);
+        rasterizer.setTransform(ClockLayout.WIDTH, ClockLayout.HEIGHT);
+        rasterizer.setStrokeWidth(20.0f);
+    }
+
+    @Benchmark
+    public int render() {
+        rasterizer.clear();
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            rasterizer.draw(ClockLayout.SHIFTS[i], frame.points, i * ClockFrame.STRIDE);
+        }
+        return rasterizer.getSegmentCount();
+    }
+}
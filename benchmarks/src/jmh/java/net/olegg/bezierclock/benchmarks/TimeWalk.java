@@ -0,0 +1,29 @@
+package net.olegg.bezierclock.benchmarks;
+
+/**
+ * Clock time for benchmarks that step frames: 20 s at 60 fps, then the same 20 s again,
+ * so every iteration sees the same mix of moving and still digits.
+ */
+class TimeWalk {
+    static final long FRAME = 16;
+    // 23:59:50 local time, so the walk covers the midnight rollover with all digits moving
+    static final long BEFORE_MIDNIGHT = 86390000L;
+
+    private static final long LENGTH = 20000L;
+
+    private final long start;
+    private long time;
+
+    TimeWalk(long start) {
+        this.start = start;
+        time = start;
+    }
+
+    long next() {
+        time += FRAME;
+        if (time >= start + LENGTH) {
+            time = start;
+        }
+        return time;
+    }
+}
@@ -0,0 +1,126 @@
+package net.olegg.bezierclock.common;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.PowerManager;
+
+import net.olegg.bezierclock.core.PowerState;
+
+import java.lang.reflect.Method;
+
+/**
+ * {@link PowerState} from battery broadcasts, battery saver and, on API 29+, the thermal status.
+ * The thermal status is polled, as its listener needs a newer SDK than the one the app is built with.
+ */
+public class AndroidPowerState extends BroadcastReceiver implements PowerState {
+    private static final int THERMAL_STATUS_API = 29;
+
+    private final Context context;
+    private final PowerManager powerManager;
+    private final Method thermalStatus;
+    // thread of the handler passed to start() only, broadcasts are delivered there too
+    private Runnable listener;
+
+    private volatile boolean powerSave = false;
+    private volatile boolean charging = false;
+    private volatile int level = LEVEL_UNKNOWN;
+
+    public AndroidPowerState(Context context) {
+        this.context = context;
+        powerManager = (PowerManager)context.getSystemService(Context.POWER_SERVICE);
+        Method method = null;
+        if (Build.VERSION.SDK_INT >= THERMAL_STATUS_API) {
+            try {
+                method = PowerManager.class.getMethod("getCurrentThermalStatus");
+            } catch (NoSuchMethodException e) {
+                method = null;
+            }
+        }
+        thermalStatus = method;
+    }
+
+    /**
+     * Starts listening, {@code listener} is called on the thread of {@code handler} whenever the state may have
+     * changed. Must be called on that thread, as must {@link #stop()}.
+     */
+    public void start(Runnable listener, Handler handler) {
+        if (this.listener != null) {
+            return;
+        }
+        this.listener = listener;
+        IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        }
+        // the battery broadcast is sticky, so the current level arrives right away
+        Intent battery = context.registerReceiver(this, filter, null, handler);
+        if (battery != null) {
+            readBattery(battery);
+        }
+        readPowerSave();
+    }
+
+    public void stop() {
+        if (listener != null) {
+            context.unregisterReceiver(this);
+            listener = null;
+        }
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+            readBattery(intent);
+        } else {
+            readPowerSave();
+        }
+        Runnable listener = this.listener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    private void readBattery(Intent intent) {
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, 100);
+        int raw = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        level = raw < 0 || scale <= 0 ? LEVEL_UNKNOWN : raw * 100 / scale;
+        int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        charging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+    }
+
+    private void readPowerSave() {
+        powerSave = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && powerManager.isPowerSaveMode();
+    }
+
+    @Override
+    public boolean isPowerSaveMode() {
+        return powerSave;
+    }
+
+    @Override
+    public boolean isCharging() {
+        return charging;
+    }
+
+    @Override
+    public int getBatteryLevel() {
+        return level;
+    }
+
+    @Override
+    public int getThermalStatus() {
+        if (thermalStatus == null) {
+            return THERMAL_NONE;
+        }
+        try {
+            return (Integer)thermalStatus.invoke(powerManager);
+        } catch (Exception e) {
+            return THERMAL_NONE;
+        }
+    }
+}
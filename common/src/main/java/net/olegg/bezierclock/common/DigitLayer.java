@@ -0,0 +1,79 @@
+package net.olegg.bezierclock.common;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.RectF;
+
+/**
+ * Offscreen copy of the clock band with only the digits that are not morphing.
+ * It is redrawn when the set of static digits changes or one of them gets a new shape,
+ * so a frame costs one blit plus the paths of the one or two moving digits.
+ */
+public class DigitLayer {
+    private final Canvas canvas = new Canvas();
+    private final Matrix matrix = new Matrix();
+    private final RectF rect = new RectF();
+    private Bitmap bitmap;
+    private int mask = -1;
+
+    /**
+     * Places the layer over {@code modelRect} as mapped by {@code modelMatrix}.
+     */
+    public void setBounds(RectF modelRect, Matrix modelMatrix) {
+        rect.set(modelRect);
+        modelMatrix.mapRect(rect);
+        int width = Math.max(1, (int)Math.ceil(rect.width()));
+        int height = Math.max(1, (int)Math.ceil(rect.height()));
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            release();
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        matrix.set(modelMatrix);
+        matrix.postTranslate(-rect.left, -rect.top);
+        invalidate();
+    }
+
+    public void invalidate() {
+        mask = -1;
+    }
+
+    /**
+     * @param staticMask digits that should be baked into the layer
+     * @param changed digits whose shape changed in this frame
+     */
+    public boolean isStale(int staticMask, int changed) {
+        return bitmap != null && (staticMask != mask || (changed & staticMask) != 0);
+    }
+
+    /**
+     * Starts redrawing the layer, the returned canvas uses model coordinates.
+     */
+    public Canvas begin(int staticMask) {
+        mask = staticMask;
+        canvas.setBitmap(bitmap);
+        canvas.setMatrix(matrix);
+        return canvas;
+    }
+
+    public void end() {
+        canvas.setBitmap(null);
+    }
+
+    /**
+     * Blits the layer, {@code target} must have the identity matrix.
+     */
+    public void draw(Canvas target) {
+        if (bitmap != null) {
+            target.drawBitmap(bitmap, rect.left, rect.top, null);
+        }
+    }
+
+    public void release() {
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+        }
+        invalidate();
+    }
+}
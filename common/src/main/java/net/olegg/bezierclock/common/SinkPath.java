@@ -0,0 +1,8 @@
+package net.olegg.bezierclock.common;
+
+import android.graphics.Path;
+
+import net.olegg.bezierclock.core.PathSink;
+
+public class SinkPath extends Path implements PathSink {
+}
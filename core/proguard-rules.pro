@@ -1 +0,0 @@
--keep class net.olegg.bezierclock.** { *; }
\ No newline at end of file
@@ -3,25 +3,117 @@ package net.olegg.bezierclock.core;
 public class BezierAnimator {
     private static final float PI = (float)Math.PI;
     private float animationStartRatio;
-    public final float[] points = new float[BezierDigit.SIZE];
+    private MorphTable morphTable;
+    private GlyphMorph morph;
+    private Easing easing = Easing.COSINE;
+    private final int[] digitIndices = new int[BezierDigit.DIGITS.length];
+    private final int segments;
+    public final float[] points;
 
     public BezierAnimator(float timeInterval, float animDuration) {
+        this(timeInterval, animDuration, DigitPath.SEGMENTS);
+    }
+
+    /**
+     * @param segments number of cubic segments every digit is drawn with, at least as many as the most complex glyph
+     */
+    public BezierAnimator(float timeInterval, float animDuration, int segments) {
         animationStartRatio = (timeInterval - animDuration) / timeInterval;
+        this.segments = segments;
+        points = new float[2 + 6 * segments];
+        setGlyphMorph(new GlyphMorph(GlyphSet.getDefault(), segments));
     }
 
-    public void update(int currentDigit, int nextDigit, float ratio) {
-        float animationRatio = 0.0f;
+    /**
+     * Maps the ratio of the whole interval to the linear progress of the morph,
+     * which stays at 0 until the animation starts.
+     */
+    public float getProgress(float ratio) {
         if (ratio > animationStartRatio) {
-            animationRatio = (ratio - animationStartRatio) / (1 - animationStartRatio);
+            return (ratio - animationStartRatio) / (1 - animationStartRatio);
+        }
+        return 0.0f;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public void setMorphTable(MorphTable morphTable) {
+        if (morphTable != null
+                && (morphTable.getGlyphSet() != morph.getGlyphSet() || morphTable.getSegments() != segments)) {
+            throw new IllegalArgumentException("Morph table is built for another glyph set");
+        }
+        if (morphTable != null && morphTable.getEasing() != easing) {
+            throw new IllegalArgumentException("Morph table is built for another easing");
+        }
+        this.morphTable = morphTable;
+    }
+
+    public Easing getEasing() {
+        return easing;
+    }
+
+    /**
+     * Switches to another easing curve, which drops a morph table baked with the previous one.
+     */
+    public void setEasing(Easing easing) {
+        if (morphTable != null && morphTable.getEasing() != easing) {
+            morphTable = null;
+        }
+        this.easing = easing;
+    }
+
+    /**
+     * Switches to another glyph style, which drops the morph table of the previous one.
+     */
+    public void setGlyphSet(GlyphSet glyphs) {
+        setGlyphMorph(new GlyphMorph(glyphs, segments));
+    }
+
+    /**
+     * Same as {@link #setGlyphSet(GlyphSet)}, sharing aligned shapes with other animators.
+     */
+    public void setGlyphMorph(GlyphMorph morph) {
+        GlyphSet glyphs = morph.getGlyphSet();
+        int required = GlyphMorph.getDigitSegments(glyphs);
+        if (required < 0) {
+            throw new IllegalArgumentException("Glyph set has no digits");
         }
-        animationRatio = (1 - (float)Math.cos(animationRatio * PI)) / 2;
-        for (int i = 0; i < BezierDigit.SIZE; ++i) {
-            points[i] = BezierDigit.DIGITS[currentDigit].vertices[i] +
-                    (BezierDigit.DIGITS[nextDigit].vertices[i] - BezierDigit.DIGITS[currentDigit].vertices[i]) * animationRatio;
+        if (required > segments || morph.getSegments() != segments) {
+            throw new IllegalArgumentException("Digits need " + required + " segments, animator has " + segments);
         }
+        for (int i = 0; i < digitIndices.length; ++i) {
+            digitIndices[i] = glyphs.indexOfDigit(i);
+        }
+        this.morph = morph;
+        morphTable = null;
+    }
+
+    /**
+     * @see GlyphMorph#prewarm()
+     */
+    public void prewarm() {
+        morph.prewarm();
+    }
+
+    public static float ease(float progress) {
+        return (1 - (float)Math.cos(progress * PI)) / 2;
+    }
+
+    public void interpolate(int currentDigit, int nextDigit, float progress, float[] out, int offset) {
+        if (morphTable != null && currentDigit != nextDigit) {
+            morphTable.interpolate(currentDigit, nextDigit, progress, out, offset);
+            return;
+        }
+        morph.interpolate(digitIndices[currentDigit], digitIndices[nextDigit], easing.ease(progress), out, offset);
+    }
+
+    public void update(int currentDigit, int nextDigit, float ratio) {
+        interpolate(currentDigit, nextDigit, getProgress(ratio), points, 0);
     }
 
     public void update(int currentDigit) {
-        System.arraycopy(BezierDigit.DIGITS[currentDigit].vertices, 0, points, 0, BezierDigit.SIZE);
+        System.arraycopy(morph.getShape(digitIndices[currentDigit]), 0, points, 0, points.length);
     }
 }
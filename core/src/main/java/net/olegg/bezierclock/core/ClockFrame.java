@@ -0,0 +1,254 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * All six clock digits for a single moment of time.
+ * Digit {@code i} occupies {@code points[i * getStride()] .. points[(i + 1) * getStride() - 1]},
+ * where the stride is {@link #STRIDE} unless the frame is created for more segments per digit.
+ */
+public class ClockFrame {
+    public static final int COUNT = 6;
+    public static final int STRIDE = BezierDigit.SIZE;
+
+    // hours tens, hours units, minutes tens, minutes units, seconds tens, seconds units, in seconds
+    public static final float[] INTERVALS = {36000.0f, 3600.0f, 600.0f, 60.0f, 10.0f, 1.0f};
+    // seconds units morph in the last 0.3 s only, so even with seconds shown frames stop for most of every second
+    public static final float[] DURATIONS = {5.0f, 5.0f, 5.0f, 5.0f, 2.0f, 0.3f};
+
+    public final float[] points;
+
+    private final BezierAnimator[] animators = new BezierAnimator[COUNT];
+    private final int[] digits = new int[COUNT];
+    private final int[] nextDigits = new int[COUNT];
+    private final float[] ratios = new float[COUNT];
+    private final int segments;
+    private final int stride;
+    private final float[] scratch;
+    private float changeThreshold = 0.0f;
+
+    private final int[] drawnDigits = new int[COUNT];
+    private final int[] drawnNextDigits = new int[COUNT];
+    private final float[] drawnProgress = new float[COUNT];
+
+    private long dayMillis;
+    private int changed;
+    private int animating;
+
+    public ClockFrame() {
+        this(DigitPath.SEGMENTS);
+    }
+
+    /**
+     * @param segments cubic segments per digit, enough for the most complex glyph of any set used with this frame
+     */
+    public ClockFrame(int segments) {
+        this.segments = segments;
+        stride = 2 + 6 * segments;
+        points = new float[COUNT * stride];
+        scratch = new float[stride];
+        // one set of aligned shapes for all digits, instead of a cache per animator
+        GlyphMorph morph = new GlyphMorph(GlyphSet.getDefault(), segments);
+        for (int i = 0; i < COUNT; ++i) {
+            animators[i] = new BezierAnimator(INTERVALS[i], DURATIONS[i], segments);
+            animators[i].setGlyphMorph(morph);
+        }
+        reset();
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Switches all digits to baked keyframes, or back to direct interpolation when {@code null}.
+     */
+    public void setMorphTable(MorphTable morphTable) {
+        for (int i = 0; i < COUNT; ++i) {
+            animators[i].setMorphTable(morphTable);
+        }
+        reset();
+    }
+
+    /**
+     * Sets the easing of every digit, dropping a morph table baked with another one.
+     */
+    public void setEasing(Easing easing) {
+        for (int i = 0; i < COUNT; ++i) {
+            animators[i].setEasing(easing);
+        }
+        reset();
+    }
+
+    /**
+     * Sets the easing of the digit at {@code position}, 0 being the tens of hours.
+     */
+    public void setEasing(int position, Easing easing) {
+        animators[position].setEasing(easing);
+        drawnDigits[position] = -1;
+    }
+
+    /**
+     * Switches all digits to another glyph style. Any morph table is dropped, since it belongs to the previous style.
+     */
+    public void setGlyphSet(GlyphSet glyphs) {
+        GlyphMorph morph = new GlyphMorph(glyphs, segments);
+        for (int i = 0; i < COUNT; ++i) {
+            animators[i].setGlyphMorph(morph);
+        }
+        reset();
+    }
+
+    /**
+     * Lets a morphing digit be reported as changed only after one of its points moved by at least
+     * {@code pixels} along either axis since it was reported last, so frames that would look the same
+     * are skipped. The start and the end of a morph are always reported.
+     *
+     * @param pixels fraction of a pixel, 0 to report every step
+     * @param scale output pixels per model unit
+     */
+    public void setChangeThreshold(float pixels, float scale) {
+        changeThreshold = scale > 0.0f ? pixels / scale : 0.0f;
+    }
+
+    /**
+     * Fills the shape caches of all digits, so the first frames do not stall on them.
+     * Call it on the thread that updates the frame.
+     */
+    public void prewarm() {
+        for (int i = 0; i < COUNT; ++i) {
+            animators[i].prewarm();
+        }
+    }
+
+    /**
+     * Forces every digit to be recomputed and reported as changed on the next update.
+     */
+    public void reset() {
+        for (int i = 0; i < COUNT; ++i) {
+            drawnDigits[i] = -1;
+        }
+    }
+
+    /**
+     * @param millis local wall clock time in ms, i.e. epoch time plus the zone offset
+     * @return bit mask of the digits whose points changed since the previous update
+     */
+    public int update(long millis) {
+        long day = millis % FrameScheduler.DAY;
+        if (day < 0) {
+            day += FrameScheduler.DAY;
+        }
+        dayMillis = day;
+        getDigits((int)day, digits, nextDigits, ratios);
+
+        changed = 0;
+        animating = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            float progress = animators[i].getProgress(ratios[i]);
+            int next = digits[i];
+            if (progress > 0.0f) {
+                next = nextDigits[i];
+                animating |= 1 << i;
+            }
+            if (digits[i] == drawnDigits[i] && next == drawnNextDigits[i]) {
+                if (progress == drawnProgress[i]) {
+                    continue;
+                }
+                if (changeThreshold > 0.0f) {
+                    animators[i].interpolate(digits[i], next, progress, scratch, 0);
+                    if (isBelowThreshold(i * stride)) {
+                        continue;
+                    }
+                    System.arraycopy(scratch, 0, points, i * stride, stride);
+                    drawnProgress[i] = progress;
+                    changed |= 1 << i;
+                    continue;
+                }
+            }
+            animators[i].interpolate(digits[i], next, progress, points, i * stride);
+            drawnDigits[i] = digits[i];
+            drawnNextDigits[i] = next;
+            drawnProgress[i] = progress;
+            changed |= 1 << i;
+        }
+        return changed;
+    }
+
+    private boolean isBelowThreshold(int offset) {
+        for (int j = 0; j < stride; ++j) {
+            if (Math.abs(scratch[j] - points[offset + j]) >= changeThreshold) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes, for every position, the digit shown at {@code time} ms after midnight, the digit it turns into next
+     * and the share of its interval that has passed, see {@link #INTERVALS}.
+     */
+    public static void getDigits(int time, int[] digits, int[] nextDigits, float[] ratios) {
+        int hour = time / 3600000;
+        int minute = time / 60000 % 60;
+        int second = time / 1000 % 60;
+        int ms = time % 1000;
+
+        // Seconds
+        int secondsUnit = second % 10;
+        int secondsTen = second / 10;
+        set(digits, nextDigits, ratios, 5, secondsUnit, (secondsUnit + 1) % 10, ms / 1000.0f);
+        set(digits, nextDigits, ratios, 4, secondsTen, (secondsTen + 1) % 6, (secondsUnit * 1000 + ms) / 10000.0f);
+
+        // Minutes
+        int minutesUnit = minute % 10;
+        int minutesTen = minute / 10;
+        set(digits, nextDigits, ratios, 3, minutesUnit, (minutesUnit + 1) % 10, (second * 1000 + ms) / 60000.0f);
+        set(digits, nextDigits, ratios, 2, minutesTen, (minutesTen + 1) % 6,
+                (minutesUnit * 60000 + second * 1000 + ms) / 600000.0f);
+
+        // Hours
+        int hoursUnit = hour % 10;
+        int hoursTen = hour / 10;
+        int hoursMillis = minute * 60000 + second * 1000 + ms;
+        set(digits, nextDigits, ratios, 1, hoursUnit, hour == 23 ? 0 : (hoursUnit + 1) % 10, hoursMillis / 3600000.0f);
+        float hoursTenRatio = (hoursUnit * 3600000 + hoursMillis) / (hour == 23 ? 4 * 3600000.0f : 36000000.0f);
+        set(digits, nextDigits, ratios, 0, hoursTen, (hoursTen + 1) % 3, hoursTenRatio);
+    }
+
+    private static void set(int[] digits, int[] nextDigits, float[] ratios,
+                            int position, int digit, int nextDigit, float ratio) {
+        digits[position] = digit;
+        nextDigits[position] = nextDigit;
+        ratios[position] = ratio;
+    }
+
+    public int getChanged() {
+        return changed;
+    }
+
+    public boolean isChanged(int position) {
+        return (changed & (1 << position)) != 0;
+    }
+
+    /**
+     * @return bit mask of the digits that are in the middle of a morph
+     */
+    public int getAnimating() {
+        return animating;
+    }
+
+    public boolean isAnimating(int position) {
+        return (animating & (1 << position)) != 0;
+    }
+
+    public int getDigit(int position) {
+        return digits[position];
+    }
+
+    public long getDayMillis() {
+        return dayMillis;
+    }
+}
@@ -0,0 +1,141 @@
+package net.olegg.bezierclock.core;
+
+import java.util.TimeZone;
+
+/**
+ * Several clocks, one per time zone, computed together. Zones a whole number of hours apart show the same
+ * minutes and seconds, and often the same hours, so digit states are shared through a {@link DigitStateCache}:
+ * a frame interpolates each distinct state once, and 20 clocks cost about as much as one.
+ * <p>
+ * Digit {@code position} of clock {@code clock} is drawn from {@link #getPoints()} at
+ * {@code getSlot(clock, position) * getStride()}, without a shift, so it can be moved into place when drawn.
+ */
+public class ClockGrid {
+    private static final int COUNT = ClockFrame.COUNT;
+
+    private final int count;
+    private final FrameClock clock = new FrameClock();
+    private final ClockSource[] sources;
+    private final BezierAnimator[] animators = new BezierAnimator[COUNT];
+    private final int[] digitIndices = new int[BezierDigit.DIGITS.length];
+    private final DigitStateCache cache;
+
+    private final int[] digits = new int[COUNT];
+    private final int[] nextDigits = new int[COUNT];
+    private final float[] ratios = new float[COUNT];
+
+    private final int[] slots;
+    private final int[] animating;
+
+    public ClockGrid(TimeZone[] timeZones) {
+        this(timeZones, GlyphSet.getDefault(), DigitPath.SEGMENTS);
+    }
+
+    public ClockGrid(TimeZone[] timeZones, GlyphSet glyphs, int segments) {
+        count = timeZones.length;
+        sources = new ClockSource[count];
+        for (int i = 0; i < count; ++i) {
+            sources[i] = new ClockSource(clock, timeZones[i]);
+        }
+        GlyphMorph morph = new GlyphMorph(glyphs, segments);
+        for (int i = 0; i < COUNT; ++i) {
+            animators[i] = new BezierAnimator(ClockFrame.INTERVALS[i], ClockFrame.DURATIONS[i], segments);
+            animators[i].setGlyphMorph(morph);
+        }
+        for (int i = 0; i < digitIndices.length; ++i) {
+            digitIndices[i] = glyphs.indexOfDigit(i);
+        }
+        // twice the worst case of a frame, so digits that stand still keep their slots
+        cache = new DigitStateCache(morph, 2 * count * COUNT);
+        slots = new int[count * COUNT];
+        animating = new int[count];
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public TimeZone getTimeZone(int clock) {
+        return sources[clock].getTimeZone();
+    }
+
+    /**
+     * @see ClockFrame#setEasing(int, Easing)
+     */
+    public void setEasing(int position, Easing easing) {
+        animators[position].setEasing(easing);
+    }
+
+    /**
+     * Computes all clocks for one moment.
+     *
+     * @param millis epoch time in ms
+     * @return number of digit states that had to be interpolated
+     */
+    public int update(long millis) {
+        clock.millis = millis;
+        cache.beginFrame();
+        for (int c = 0; c < count; ++c) {
+            ClockSource source = sources[c];
+            source.update();
+            ClockFrame.getDigits(source.getDayMillis(), digits, nextDigits, ratios);
+            int mask = 0;
+            for (int i = 0; i < COUNT; ++i) {
+                float progress = animators[i].getProgress(ratios[i]);
+                int next = digits[i];
+                float ratio = 0.0f;
+                if (progress > 0.0f) {
+                    next = nextDigits[i];
+                    ratio = animators[i].getEasing().ease(progress);
+                    mask |= 1 << i;
+                }
+                slots[c * COUNT + i] = cache.get(digitIndices[digits[i]], digitIndices[next], ratio);
+            }
+            animating[c] = mask;
+        }
+        return cache.getComputed();
+    }
+
+    public DigitStateCache getCache() {
+        return cache;
+    }
+
+    public float[] getPoints() {
+        return cache.points;
+    }
+
+    public int getStride() {
+        return cache.getStride();
+    }
+
+    public int getSegments() {
+        return cache.getGlyphMorph().getSegments();
+    }
+
+    /**
+     * @return slot of the digit at {@code position} of {@code clock} in the latest update
+     */
+    public int getSlot(int clock, int position) {
+        return slots[clock * COUNT + position];
+    }
+
+    /**
+     * @return bit mask of the digits of {@code clock} that are in the middle of a morph
+     */
+    public int getAnimating(int clock) {
+        return animating[clock];
+    }
+
+    public int getDayMillis(int clock) {
+        return sources[clock].getDayMillis();
+    }
+
+    private static class FrameClock implements ClockSource.Clock {
+        long millis;
+
+        @Override
+        public long currentTimeMillis() {
+            return millis;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Placement of the six digits in model space, shared by the engines and the offline tools.
+ * Several clocks are placed in a grid of {@link #WIDTH} x {@link #HEIGHT} cells, {@link #GAP} apart.
+ */
+public final class ClockLayout {
+    public static final float[] SHIFTS = {0.0f, 300.0f, 800.0f, 1100.0f, 1600.0f, 1900.0f};
+    public static final float WIDTH = 2380.0f;
+    public static final float HEIGHT = 550.0f;
+    // hours and minutes only
+    public static final float AMBIENT_WIDTH = 1580.0f;
+    public static final float GAP = 300.0f;
+
+    private ClockLayout() {
+    }
+
+    /**
+     * @return number of columns that shows {@code count} clocks the largest in a {@code width x height} area
+     */
+    public static int getColumns(int count, float width, float height) {
+        int best = 1;
+        float bestScale = 0.0f;
+        for (int columns = 1; columns <= count; ++columns) {
+            int rows = (count + columns - 1) / columns;
+            float scale = Math.min(width / getGridWidth(columns), height / getGridHeight(rows));
+            if (scale > bestScale) {
+                best = columns;
+                bestScale = scale;
+            }
+        }
+        return best;
+    }
+
+    public static int getRows(int count, int columns) {
+        return (count + columns - 1) / columns;
+    }
+
+    public static float getGridWidth(int columns) {
+        return columns * WIDTH + (columns - 1) * GAP;
+    }
+
+    public static float getGridHeight(int rows) {
+        return rows * HEIGHT + (rows - 1) * GAP;
+    }
+
+    /**
+     * Writes the model space origin of clock {@code index} in a grid of {@code columns}, filled row by row,
+     * into {@code out[offset]} and {@code out[offset + 1]}.
+     */
+    public static void getOrigin(int index, int columns, float[] out, int offset) {
+        out[offset] = (index % columns) * (WIDTH + GAP);
+        out[offset + 1] = (index / columns) * (HEIGHT + GAP);
+    }
+}
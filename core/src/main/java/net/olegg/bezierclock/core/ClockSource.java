@@ -0,0 +1,140 @@
+package net.olegg.bezierclock.core;
+
+import java.util.TimeZone;
+
+/**
+ * Local wall clock time without per-frame calendar math.
+ * The zone offset is looked up once and kept until the next offset transition of the zone,
+ * so a regular update is a clock read and an addition.
+ */
+public class ClockSource {
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    public static final Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private static final long DAY = FrameScheduler.DAY;
+    // how far ahead to look for the next transition, zones without DST are rechecked after that
+    private static final long HORIZON = 366 * DAY;
+
+    private final Clock clock;
+    private TimeZone timeZone;
+
+    private int offset;
+    private long validFrom;
+    private long validUntil;
+
+    private long millis;
+    private int dayMillis;
+
+    public ClockSource() {
+        this(SYSTEM, TimeZone.getDefault());
+    }
+
+    public ClockSource(Clock clock, TimeZone timeZone) {
+        this.clock = clock;
+        this.timeZone = timeZone;
+        invalidate();
+    }
+
+    public void setTimeZone(TimeZone timeZone) {
+        this.timeZone = timeZone;
+        invalidate();
+    }
+
+    public TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+    /**
+     * Drops the cached offset, the next update looks it up again.
+     */
+    public void invalidate() {
+        validFrom = Long.MAX_VALUE;
+        validUntil = Long.MIN_VALUE;
+    }
+
+    /**
+     * Reads the clock.
+     *
+     * @return local wall clock time in ms, i.e. epoch time plus the zone offset
+     */
+    public long update() {
+        long now = clock.currentTimeMillis();
+        if (now < validFrom || now >= validUntil) {
+            refresh(now);
+        }
+        millis = now + offset;
+        long day = millis % DAY;
+        dayMillis = (int)(day < 0 ? day + DAY : day);
+        return millis;
+    }
+
+    private void refresh(long now) {
+        offset = timeZone.getOffset(now);
+        validFrom = now;
+        validUntil = now + HORIZON;
+        for (long probe = now; probe < now + HORIZON; probe += DAY) {
+            if (timeZone.getOffset(probe + DAY) != offset) {
+                validUntil = findTransition(probe, probe + DAY);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Binary search for the first ms in (same, changed] with a different offset.
+     */
+    private long findTransition(long same, long changed) {
+        while (changed - same > 1) {
+            long middle = same + (changed - same) / 2;
+            if (timeZone.getOffset(middle) == offset) {
+                same = middle;
+            } else {
+                changed = middle;
+            }
+        }
+        return changed;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return epoch time of the next offset change, or of the next recheck when none is known
+     */
+    public long getNextTransition() {
+        return validUntil;
+    }
+
+    public int getDayMillis() {
+        return dayMillis;
+    }
+
+    public int getHour() {
+        return dayMillis / 3600000;
+    }
+
+    public int getMinute() {
+        return dayMillis / 60000 % 60;
+    }
+
+    public int getSecond() {
+        return dayMillis / 1000 % 60;
+    }
+
+    public int getMillisecond() {
+        return dayMillis % 1000;
+    }
+}
@@ -0,0 +1,83 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Exact bounds of digit outlines. Each cubic is bounded by its end points and the roots of
+ * its derivative, which is tighter than the control point hull.
+ */
+public final class CurveBounds {
+    public static final int LEFT = 0;
+    public static final int TOP = 1;
+    public static final int RIGHT = 2;
+    public static final int BOTTOM = 3;
+
+    private static final float EPSILON = 1e-6f;
+
+    private CurveBounds() {
+    }
+
+    /**
+     * Writes left, top, right, bottom of the digit stored at {@code points[offset]},
+     * moved right by {@code shift}, into {@code out[outOffset] .. out[outOffset + 3]}.
+     */
+    public static void compute(float[] points, int offset, float shift, float[] out, int outOffset) {
+        compute(points, offset, DigitPath.SEGMENTS, shift, out, outOffset);
+    }
+
+    /**
+     * Same as {@link #compute(float[], int, float, float[], int)} for digits of {@code segments} cubics.
+     */
+    public static void compute(float[] points, int offset, int segments, float shift, float[] out, int outOffset) {
+        float x0 = points[offset];
+        float y0 = points[offset + 1];
+        out[outOffset + LEFT] = x0;
+        out[outOffset + TOP] = y0;
+        out[outOffset + RIGHT] = x0;
+        out[outOffset + BOTTOM] = y0;
+        for (int j = 0, k = offset + 2; j < segments; ++j, k += 6) {
+            include(x0, points[k], points[k + 2], points[k + 4], out, outOffset + LEFT, outOffset + RIGHT);
+            include(y0, points[k + 1], points[k + 3], points[k + 5], out, outOffset + TOP, outOffset + BOTTOM);
+            x0 = points[k + 4];
+            y0 = points[k + 5];
+        }
+        out[outOffset + LEFT] += shift;
+        out[outOffset + RIGHT] += shift;
+    }
+
+    private static void include(float p0, float p1, float p2, float p3, float[] out, int min, int max) {
+        extend(p3, out, min, max);
+        // B'(t) / 3 = a t^2 + b t + c
+        float a = -p0 + 3 * p1 - 3 * p2 + p3;
+        float b = 2 * (p0 - 2 * p1 + p2);
+        float c = p1 - p0;
+        if (Math.abs(a) < EPSILON) {
+            if (Math.abs(b) >= EPSILON) {
+                extend(p0, p1, p2, p3, -c / b, out, min, max);
+            }
+            return;
+        }
+        float discriminant = b * b - 4 * a * c;
+        if (discriminant < 0) {
+            return;
+        }
+        float root = (float)Math.sqrt(discriminant);
+        extend(p0, p1, p2, p3, (-b + root) / (2 * a), out, min, max);
+        extend(p0, p1, p2, p3, (-b - root) / (2 * a), out, min, max);
+    }
+
+    private static void extend(float p0, float p1, float p2, float p3, float t, float[] out, int min, int max) {
+        if (t <= 0 || t >= 1) {
+            return;
+        }
+        float u = 1 - t;
+        extend(u * u * u * p0 + 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t * p3, out, min, max);
+    }
+
+    private static void extend(float value, float[] out, int min, int max) {
+        if (value < out[min]) {
+            out[min] = value;
+        }
+        if (value > out[max]) {
+            out[max] = value;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package net.olegg.bezierclock.core;
+
+public final class DigitPath {
+    public static final int SEGMENTS = (BezierDigit.SIZE - 2) / 6;
+
+    private DigitPath() {
+    }
+
+    /**
+     * Emits one digit stored at {@code points[offset]}, moved right by {@code shift}.
+     */
+    public static void build(PathSink sink, float shift, float[] points, int offset) {
+        build(sink, shift, points, offset, SEGMENTS);
+    }
+
+    /**
+     * Same as {@link #build(PathSink, float, float[], int)} for digits of {@code segments} cubics.
+     */
+    public static void build(PathSink sink, float shift, float[] points, int offset, int segments) {
+        sink.moveTo(shift + points[offset], points[offset + 1]);
+        for (int j = 0, k = offset + 2; j < segments; ++j) {
+            sink.cubicTo(
+                    shift + points[k++], points[k++],
+                    shift + points[k++], points[k++],
+                    shift + points[k++], points[k++]);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Flattens one digit straight into line segments for {@code Canvas.drawLines}, without a {@code Path}.
+ * Every cubic is stepped uniformly by forward differencing, so a point costs a few additions.
+ * The step count of each cubic follows from its on-screen size by Wang's formula,
+ * which keeps the lines within {@link #setTolerance(float) tolerance} pixels of the curve.
+ * Drawn with {@code Paint.Cap.ROUND}, the caps of adjacent lines overlap into round joins.
+ */
+public class DigitPolyline {
+    public static final int MAX_STEPS = 64;
+
+    private final float[] lines;
+    private int count;
+    private float scale = 1.0f;
+    private float tolerance = 0.25f;
+    // steps squared per model unit of the largest second difference of the control points
+    private float factor;
+
+    public DigitPolyline() {
+        this(DigitPath.SEGMENTS);
+    }
+
+    /**
+     * @param segments largest number of cubics in a digit
+     */
+    public DigitPolyline(int segments) {
+        lines = new float[segments * MAX_STEPS * 4];
+        updateFactor();
+    }
+
+    /**
+     * @param scale output pixels per model unit
+     */
+    public void setScale(float scale) {
+        this.scale = scale;
+        updateFactor();
+    }
+
+    /**
+     * @param tolerance maximum distance in pixels between a curve and its lines
+     */
+    public void setTolerance(float tolerance) {
+        this.tolerance = tolerance;
+        updateFactor();
+    }
+
+    private void updateFactor() {
+        // Wang: n = sqrt(d (d - 1) / 8 * M / tolerance), d = 3
+        factor = 0.75f * scale / tolerance;
+    }
+
+    /**
+     * Replaces the lines with the digit stored at {@code points[offset]}, moved right by {@code shift}.
+     */
+    public void build(float shift, float[] points, int offset) {
+        build(shift, points, offset, DigitPath.SEGMENTS);
+    }
+
+    /**
+     * Same as {@link #build(float, float[], int)} for digits of {@code segments} cubics.
+     */
+    public void build(float shift, float[] points, int offset, int segments) {
+        count = 0;
+        float x0 = shift + points[offset];
+        float y0 = points[offset + 1];
+        for (int j = 0, k = offset + 2; j < segments; ++j, k += 6) {
+            float x1 = shift + points[k];
+            float y1 = points[k + 1];
+            float x2 = shift + points[k + 2];
+            float y2 = points[k + 3];
+            float x3 = shift + points[k + 4];
+            float y3 = points[k + 5];
+            cubic(x0, y0, x1, y1, x2, y2, x3, y3);
+            x0 = x3;
+            y0 = y3;
+        }
+    }
+
+    private void cubic(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3) {
+        int steps = getSteps(x0, y0, x1, y1, x2, y2, x3, y3);
+        float h = 1.0f / steps;
+        float h2 = h * h;
+        float h3 = h2 * h;
+        // B(t) = a t^3 + b t^2 + c t + p0
+        float ax = -x0 + 3 * (x1 - x2) + x3;
+        float ay = -y0 + 3 * (y1 - y2) + y3;
+        float bx = 3 * (x0 - 2 * x1 + x2);
+        float by = 3 * (y0 - 2 * y1 + y2);
+        float cx = 3 * (x1 - x0);
+        float cy = 3 * (y1 - y0);
+        float dx = ax * h3 + bx * h2 + cx * h;
+        float dy = ay * h3 + by * h2 + cy * h;
+        float ddx = 6 * ax * h3 + 2 * bx * h2;
+        float ddy = 6 * ay * h3 + 2 * by * h2;
+        float dddx = 6 * ax * h3;
+        float dddy = 6 * ay * h3;
+
+        float[] lines = this.lines;
+        int i = count;
+        float x = x0;
+        float y = y0;
+        for (int s = 1; s < steps; ++s) {
+            lines[i++] = x;
+            lines[i++] = y;
+            x += dx;
+            y += dy;
+            lines[i++] = x;
+            lines[i++] = y;
+            dx += ddx;
+            dy += ddy;
+            ddx += dddx;
+            ddy += dddy;
+        }
+        // the last point is taken as is, so rounding errors never open a gap between cubics
+        lines[i++] = x;
+        lines[i++] = y;
+        lines[i++] = x3;
+        lines[i++] = y3;
+        count = i;
+    }
+
+    private int getSteps(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3) {
+        float ux = x0 - 2 * x1 + x2;
+        float uy = y0 - 2 * y1 + y2;
+        float vx = x1 - 2 * x2 + x3;
+        float vy = y1 - 2 * y2 + y3;
+        float m = (float)Math.sqrt(Math.max(ux * ux + uy * uy, vx * vx + vy * vy));
+        int steps = (int)Math.ceil(Math.sqrt(factor * m));
+        return Math.max(1, Math.min(MAX_STEPS, steps));
+    }
+
+    /**
+     * @return x0, y0, x1, y1 of every line, in model units, valid up to {@link #getCount()}
+     */
+    public float[] getLines() {
+        return lines;
+    }
+
+    /**
+     * @return number of floats in {@link #getLines()}, four per line, as {@code Canvas.drawLines} takes it
+     */
+    public int getCount() {
+        return count;
+    }
+}
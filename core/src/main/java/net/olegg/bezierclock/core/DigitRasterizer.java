@@ -0,0 +1,228 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Software renderer for digit outlines, independent of android.graphics.
+ * Cubics are flattened adaptively in output pixels, every line is stroked as a capsule,
+ * which gives the same round caps and joins as {@code Paint.Cap.ROUND}, and the coverage
+ * of overlapping strokes is merged with max, like a single stroked path.
+ */
+public class DigitRasterizer implements PathSink {
+    private static final int MAX_DEPTH = 16;
+
+    private final int width;
+    private final int height;
+    private final float[] coverage;
+
+    private float scale = 1.0f;
+    private float dx = 0.0f;
+    private float dy = 0.0f;
+    private float radius = 0.5f;
+    private float tolerance = 0.25f;
+    private boolean antiAlias = true;
+
+    private float lastX;
+    private float lastY;
+    private int curveCount;
+    private int segmentCount;
+
+    public DigitRasterizer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        coverage = new float[width * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Maps model coordinates to pixels as {@code x * scale + dx}, {@code y * scale + dy}.
+     */
+    public void setTransform(float scale, float dx, float dy) {
+        this.scale = scale;
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /**
+     * Sets the transform that fits {@code modelWidth x modelHeight} into the buffer, centered.
+     */
+    public void setTransform(float modelWidth, float modelHeight) {
+        float fit = Math.min(width / modelWidth, height / modelHeight);
+        setTransform(fit, (width - modelWidth * fit) / 2, (height - modelHeight * fit) / 2);
+    }
+
+    /**
+     * @param strokeWidth stroke width in model units, scaled with the transform like a canvas matrix does
+     */
+    public void setStrokeWidth(float strokeWidth) {
+        radius = strokeWidth / 2;
+    }
+
+    /**
+     * @param tolerance maximum distance in pixels between a curve and its flattened lines
+     */
+    public void setTolerance(float tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public void setAntiAlias(boolean antiAlias) {
+        this.antiAlias = antiAlias;
+    }
+
+    public void clear() {
+        for (int i = 0; i < coverage.length; ++i) {
+            coverage[i] = 0.0f;
+        }
+        curveCount = 0;
+        segmentCount = 0;
+    }
+
+    /**
+     * Strokes one digit stored at {@code points[offset]}, moved right by {@code shift} model units.
+     */
+    public void draw(float shift, float[] points, int offset) {
+        DigitPath.build(this, shift, points, offset);
+    }
+
+    public void draw(float shift, float[] points, int offset, int segments) {
+        DigitPath.build(this, shift, points, offset, segments);
+    }
+
+    /**
+     * Strokes {@code count / 4} lines given as x0, y0, x1, y1 in model units, like {@code Canvas.drawLines}
+     * with round caps, e.g. from {@link DigitPolyline}.
+     */
+    public void drawLines(float[] lines, int offset, int count) {
+        for (int i = offset; i < offset + count; i += 4) {
+            stroke(lines[i] * scale + dx, lines[i + 1] * scale + dy,
+                    lines[i + 2] * scale + dx, lines[i + 3] * scale + dy);
+        }
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        lastX = x * scale + dx;
+        lastY = y * scale + dy;
+    }
+
+    @Override
+    public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        float x0 = lastX;
+        float y0 = lastY;
+        lastX = x3 * scale + dx;
+        lastY = y3 * scale + dy;
+        curveCount++;
+        flatten(x0, y0,
+                x1 * scale + dx, y1 * scale + dy,
+                x2 * scale + dx, y2 * scale + dy,
+                lastX, lastY, 0);
+    }
+
+    private void flatten(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3, int depth) {
+        if (depth >= MAX_DEPTH || isFlat(x0, y0, x1, y1, x2, y2, x3, y3)) {
+            stroke(x0, y0, x3, y3);
+            return;
+        }
+        // de Casteljau split at t = 0.5
+        float x01 = (x0 + x1) / 2, y01 = (y0 + y1) / 2;
+        float x12 = (x1 + x2) / 2, y12 = (y1 + y2) / 2;
+        float x23 = (x2 + x3) / 2, y23 = (y2 + y3) / 2;
+        float x012 = (x01 + x12) / 2, y012 = (y01 + y12) / 2;
+        float x123 = (x12 + x23) / 2, y123 = (y12 + y23) / 2;
+        float xm = (x012 + x123) / 2, ym = (y012 + y123) / 2;
+        flatten(x0, y0, x01, y01, x012, y012, xm, ym, depth + 1);
+        flatten(xm, ym, x123, y123, x23, y23, x3, y3, depth + 1);
+    }
+
+    private boolean isFlat(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3) {
+        // the curve deviates from the chord by at most 3/4 of the largest control point offset
+        float ux = 3 * x1 - 2 * x0 - x3, uy = 3 * y1 - 2 * y0 - y3;
+        float vx = 3 * x2 - x0 - 2 * x3, vy = 3 * y2 - y0 - 2 * y3;
+        float u = Math.max(ux * ux, vx * vx) + Math.max(uy * uy, vy * vy);
+        return u <= 16 * tolerance * tolerance;
+    }
+
+    private void stroke(float x0, float y0, float x1, float y1) {
+        segmentCount++;
+        float r = radius * scale;
+        float reach = r + 0.5f;
+        int top = Math.max(0, (int)Math.floor(Math.min(y0, y1) - reach));
+        int bottom = Math.min(height - 1, (int)Math.ceil(Math.max(y0, y1) + reach));
+        int left = Math.max(0, (int)Math.floor(Math.min(x0, x1) - reach));
+        int right = Math.min(width - 1, (int)Math.ceil(Math.max(x0, x1) + reach));
+
+        float ex = x1 - x0;
+        float ey = y1 - y0;
+        float length = ex * ex + ey * ey;
+        for (int y = top; y <= bottom; ++y) {
+            float py = y + 0.5f - y0;
+            int row = y * width;
+            for (int x = left; x <= right; ++x) {
+                float px = x + 0.5f - x0;
+                float t = length > 0 ? Math.max(0.0f, Math.min(1.0f, (px * ex + py * ey) / length)) : 0.0f;
+                float cx = px - t * ex;
+                float cy = py - t * ey;
+                float distance = (float)Math.sqrt(cx * cx + cy * cy);
+                float value;
+                if (antiAlias) {
+                    value = Math.min(1.0f, reach - distance);
+                } else {
+                    value = distance <= r ? 1.0f : 0.0f;
+                }
+                if (value > coverage[row + x]) {
+                    coverage[row + x] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of cubics and of the line segments they were flattened into since the last clear.
+     */
+    public int getCurveCount() {
+        return curveCount;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Writes 8-bit coverage, row by row, into {@code out}.
+     */
+    public void toGray(byte[] out) {
+        for (int i = 0; i < coverage.length; ++i) {
+            out[i] = (byte)Math.round(coverage[i] * 255);
+        }
+    }
+
+    /**
+     * Blends {@code foreground} over {@code background}, both ARGB, into {@code out}.
+     */
+    public void toArgb(int foreground, int background, int[] out) {
+        for (int i = 0; i < coverage.length; ++i) {
+            float a = coverage[i];
+            if (a <= 0.0f) {
+                out[i] = background;
+            } else if (a >= 1.0f) {
+                out[i] = foreground;
+            } else {
+                out[i] = blend(foreground, background, 24, a)
+                        | blend(foreground, background, 16, a)
+                        | blend(foreground, background, 8, a)
+                        | blend(foreground, background, 0, a);
+            }
+        }
+    }
+
+    private static int blend(int foreground, int background, int shift, float a) {
+        int f = (foreground >>> shift) & 0xFF;
+        int b = (background >>> shift) & 0xFF;
+        return Math.round(b + (f - b) * a) << shift;
+    }
+}
@@ -0,0 +1,177 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Digit shapes deduplicated by state. A digit morphing from glyph {@code from} to glyph {@code to}
+ * at a ratio quantized to 1 / {@link #QUANTUM} has the same points wherever it is shown,
+ * so each distinct state is interpolated once however many clocks show it.
+ * <p>
+ * A state keeps its slot for as long as it is used, and slots are reused least recently used first,
+ * so callers can cache derived data, e.g. paths, per slot and rebuild it when {@link #getKey(int)} changes.
+ */
+public class DigitStateCache {
+    // a step of 1/1024 moves a point by less than 0.3 model units even for the longest morphs
+    public static final int QUANTUM = 1024;
+
+    private static final long EMPTY = -1L;
+
+    private final GlyphMorph morph;
+    private final int capacity;
+    private final int stride;
+    public final float[] points;
+
+    private final long[] slotKeys;
+    private final long[] slotFrames;
+    private final long[] tableKeys;
+    private final int[] tableSlots;
+    private final int mask;
+
+    private long frame = 0;
+    private int hand = 0;
+    private int computed = 0;
+
+    /**
+     * @param capacity number of slots, at least the number of distinct states in one frame
+     */
+    public DigitStateCache(GlyphMorph morph, int capacity) {
+        this.morph = morph;
+        this.capacity = capacity;
+        stride = morph.getSize();
+        points = new float[capacity * stride];
+        slotKeys = new long[capacity];
+        slotFrames = new long[capacity];
+        for (int i = 0; i < capacity; ++i) {
+            slotKeys[i] = EMPTY;
+            slotFrames[i] = Long.MIN_VALUE;
+        }
+        int size = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        tableKeys = new long[size];
+        tableSlots = new int[size];
+        for (int i = 0; i < size; ++i) {
+            tableKeys[i] = EMPTY;
+        }
+        mask = size - 1;
+    }
+
+    public GlyphMorph getGlyphMorph() {
+        return morph;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of floats per slot, slot {@code i} starts at {@code points[i * getStride()]}
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Starts a new frame, slots used in it are not reused until the next one.
+     */
+    public void beginFrame() {
+        ++frame;
+        computed = 0;
+    }
+
+    /**
+     * @param from glyph index of the shown digit
+     * @param to glyph index of the digit it morphs into
+     * @param ratio eased share of the morph, see {@link GlyphMorph#interpolate(int, int, float, float[], int)}
+     * @return slot holding the points of the state
+     */
+    public int get(int from, int to, float ratio) {
+        int step = Math.round(ratio * QUANTUM);
+        if (step == 0) {
+            // the start of every morph looks like the digit itself
+            to = from;
+        } else if (from == to) {
+            step = 0;
+        }
+        long key = ((long)from << 48) | ((long)to << 32) | (step & 0xFFFFFFFFL);
+        int index = indexOf(key);
+        while (tableKeys[index] != EMPTY) {
+            if (tableKeys[index] == key) {
+                int slot = tableSlots[index];
+                slotFrames[slot] = frame;
+                return slot;
+            }
+            index = (index + 1) & mask;
+        }
+
+        int slot = evict();
+        if (slotKeys[slot] != EMPTY) {
+            remove(slotKeys[slot]);
+            index = indexOf(key);
+            while (tableKeys[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+        }
+        tableKeys[index] = key;
+        tableSlots[index] = slot;
+        slotKeys[slot] = key;
+        slotFrames[slot] = frame;
+        morph.interpolate(from, to, (float)step / QUANTUM, points, slot * stride);
+        computed++;
+        return slot;
+    }
+
+    /**
+     * @return state of {@code slot}, changes whenever the slot gets new points, -1 if it was never used
+     */
+    public long getKey(int slot) {
+        return slotKeys[slot];
+    }
+
+    /**
+     * @return number of states interpolated in the current frame, the rest came from earlier frames or other clocks
+     */
+    public int getComputed() {
+        return computed;
+    }
+
+    private int evict() {
+        // unused for a whole frame first, then anything not used in this one
+        for (int pass = 0; pass < 2; ++pass) {
+            long limit = pass == 0 ? frame - 1 : frame;
+            for (int i = 0; i < capacity; ++i) {
+                int slot = hand;
+                hand = hand + 1 == capacity ? 0 : hand + 1;
+                if (slotFrames[slot] < limit) {
+                    return slot;
+                }
+            }
+        }
+        throw new IllegalStateException("More than " + capacity + " digit states in one frame");
+    }
+
+    private int indexOf(long key) {
+        int hash = (int)(key ^ (key >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void remove(long key) {
+        int index = indexOf(key);
+        while (tableKeys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        // linear probing without tombstones, entries behind the hole move back if their home allows
+        int hole = index;
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            long moved = tableKeys[next];
+            if (moved == EMPTY) {
+                break;
+            }
+            int home = indexOf(moved);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                tableKeys[hole] = moved;
+                tableSlots[hole] = tableSlots[next];
+                hole = next;
+            }
+        }
+        tableKeys[hole] = EMPTY;
+    }
+}
@@ -0,0 +1,202 @@
+package net.olegg.bezierclock.core;
+
+import java.util.Locale;
+
+/**
+ * Maps the linear progress of a morph, 0..1, to the share of the way between two shapes.
+ * Curves may leave 0..1 in between, e.g. to overshoot, but start at 0 and end at 1.
+ * <p>
+ * Everything except {@link #LINEAR} is evaluated through a {@link #bake(Easing, int) baked} table,
+ * so a frame costs one table lookup per digit however expensive the curve is.
+ */
+public abstract class Easing {
+    public static final int SAMPLES = 256;
+
+    public static final Easing LINEAR = new Easing() {
+        @Override
+        public float ease(float progress) {
+            return progress;
+        }
+    };
+
+    /** The original clock easing, (1 - cos(x * PI)) / 2. */
+    public static final Easing COSINE = bake(new Easing() {
+        @Override
+        public float ease(float progress) {
+            return BezierAnimator.ease(progress);
+        }
+    }, SAMPLES);
+
+    public abstract float ease(float progress);
+
+    /**
+     * Samples {@code easing} at {@code samples} evenly spaced points and interpolates linearly between them.
+     */
+    public static Easing bake(Easing easing, int samples) {
+        if (samples < 2) {
+            throw new IllegalArgumentException("At least 2 samples are required, got " + samples);
+        }
+        float[] table = new float[samples + 1];
+        for (int i = 0; i < samples; ++i) {
+            table[i] = easing.ease((float)i / (samples - 1));
+        }
+        // padding, so the last interval needs no bounds check
+        table[samples] = table[samples - 1];
+        return new Table(table);
+    }
+
+    private static class Table extends Easing {
+        private final float[] table;
+        private final float last;
+
+        Table(float[] table) {
+            this.table = table;
+            last = table.length - 2;
+        }
+
+        @Override
+        public float ease(float progress) {
+            if (progress <= 0.0f) {
+                return table[0];
+            }
+            if (progress >= 1.0f) {
+                return table[table.length - 1];
+            }
+            float position = progress * last;
+            int index = (int)position;
+            float from = table[index];
+            return from + (table[index + 1] - from) * (position - index);
+        }
+    }
+
+    /**
+     * CSS {@code cubic-bezier(x1, y1, x2, y2)}, x1 and x2 must be within 0..1.
+     */
+    public static Easing cubicBezier(final float x1, final float y1, final float x2, final float y2) {
+        if (x1 < 0.0f || x1 > 1.0f || x2 < 0.0f || x2 > 1.0f) {
+            throw new IllegalArgumentException("x1 and x2 must be within 0..1");
+        }
+        return bake(new Easing() {
+            @Override
+            public float ease(float progress) {
+                return sample(y1, y2, solve(x1, x2, progress));
+            }
+        }, SAMPLES);
+    }
+
+    private static float sample(float p1, float p2, float t) {
+        float s = 1 - t;
+        return 3 * s * s * t * p1 + 3 * s * t * t * p2 + t * t * t;
+    }
+
+    /**
+     * Finds t with x(t) = {@code x} by Newton steps, falling back to bisection where the slope is flat.
+     */
+    private static float solve(float x1, float x2, float x) {
+        float t = x;
+        for (int i = 0; i < 8; ++i) {
+            float error = sample(x1, x2, t) - x;
+            if (Math.abs(error) < 1e-6f) {
+                return t;
+            }
+            float s = 1 - t;
+            float slope = 3 * s * s * x1 + 6 * s * t * (x2 - x1) + 3 * t * t * (1 - x2);
+            if (Math.abs(slope) < 1e-6f) {
+                break;
+            }
+            t -= error / slope;
+        }
+        float low = 0.0f;
+        float high = 1.0f;
+        t = x;
+        for (int i = 0; i < 32; ++i) {
+            float value = sample(x1, x2, t);
+            if (Math.abs(value - x) < 1e-6f) {
+                break;
+            }
+            if (value < x) {
+                low = t;
+            } else {
+                high = t;
+            }
+            t = (low + high) / 2;
+        }
+        return t;
+    }
+
+    /**
+     * Damped spring released at 0 towards 1, corrected to end exactly at 1.
+     *
+     * @param damping damping ratio, below 1 the spring oscillates around the target
+     * @param frequency angular frequency of the undamped spring, in radians per whole morph
+     */
+    public static Easing spring(final float damping, final float frequency) {
+        if (damping <= 0.0f || damping >= 1.0f || frequency <= 0.0f) {
+            throw new IllegalArgumentException("Expected 0 < damping < 1 and frequency > 0");
+        }
+        final double decay = damping * frequency;
+        final double damped = frequency * Math.sqrt(1 - damping * damping);
+        final double end = getSpring(decay, damped, 1.0);
+        return bake(new Easing() {
+            @Override
+            public float ease(float progress) {
+                return (float)(getSpring(decay, damped, progress) + (1 - end) * progress);
+            }
+        }, SAMPLES);
+    }
+
+    private static double getSpring(double decay, double damped, double t) {
+        return 1 - Math.exp(-decay * t) * (Math.cos(damped * t) + decay / damped * Math.sin(damped * t));
+    }
+
+    /**
+     * Goes past the target and settles back, like {@code android.view.animation.OvershootInterpolator}.
+     */
+    public static Easing overshoot(final float tension) {
+        return bake(new Easing() {
+            @Override
+            public float ease(float progress) {
+                float t = progress - 1;
+                return t * t * ((tension + 1) * t + tension) + 1;
+            }
+        }, SAMPLES);
+    }
+
+    /**
+     * Resolves a preference value: {@code linear}, {@code cosine}, {@code ease}, {@code ease-in},
+     * {@code ease-out}, {@code ease-in-out}, {@code spring}, {@code overshoot}
+     * or {@code cubic-bezier(x1, y1, x2, y2)}.
+     */
+    public static Easing forName(String name) {
+        String value = name.trim().toLowerCase(Locale.US);
+        if (value.startsWith("cubic-bezier(") && value.endsWith(")")) {
+            String[] parts = value.substring("cubic-bezier(".length(), value.length() - 1).split(",");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Expected 4 control values in " + name);
+            }
+            return cubicBezier(
+                    Float.parseFloat(parts[0].trim()), Float.parseFloat(parts[1].trim()),
+                    Float.parseFloat(parts[2].trim()), Float.parseFloat(parts[3].trim()));
+        }
+        switch (value) {
+            case "linear":
+                return LINEAR;
+            case "cosine":
+                return COSINE;
+            case "ease":
+                return cubicBezier(0.25f, 0.1f, 0.25f, 1.0f);
+            case "ease-in":
+                return cubicBezier(0.42f, 0.0f, 1.0f, 1.0f);
+            case "ease-out":
+                return cubicBezier(0.0f, 0.0f, 0.58f, 1.0f);
+            case "ease-in-out":
+                return cubicBezier(0.42f, 0.0f, 0.58f, 1.0f);
+            case "spring":
+                return spring(0.4f, 14.0f);
+            case "overshoot":
+                return overshoot(2.0f);
+            default:
+                throw new IllegalArgumentException("Unknown easing " + name);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Integer counterpart of {@link ClockFrame} for devices with a weak FPU and small caches.
+ * <p>
+ * Digit shapes are kept as {@code short}s in 1 / {@link #ONE} model units with the shift of their position
+ * already added, easing curves as tables of integer weights, and a morph step is one integer lerp per
+ * coordinate. Digit phases are worked out in whole ms, so an update needs no floats at all;
+ * they only appear when a digit is handed to a {@link PathSink} or copied out.
+ */
+public class FixedClockFrame {
+    public static final int COUNT = ClockFrame.COUNT;
+    public static final int STRIDE = ClockFrame.STRIDE;
+    // 1/8 model unit keeps every shifted coordinate of the clock, up to 2380, within a short
+    public static final int FRACTION_BITS = 3;
+    public static final int ONE = 1 << FRACTION_BITS;
+    public static final int WEIGHT_BITS = 14;
+    public static final int PROGRESS_BITS = 16;
+
+    private static final int DIGITS = BezierDigit.DIGITS.length;
+    private static final int SAMPLES = 256;
+    private static final float TO_FLOAT = 1.0f / ONE;
+
+    // coordinates in 1/ONE model units, shifted
+    public final int[] points = new int[COUNT * STRIDE];
+
+    private final GlyphMorph morph;
+    private final int[] digitIndices = new int[DIGITS];
+    private final float[] shifts;
+    private final short[][] shapes = new short[COUNT * DIGITS][];
+    private final short[][] targets = new short[COUNT * DIGITS * DIGITS][];
+    private final int[][] weights = new int[COUNT][];
+    private final int[] intervals = new int[COUNT];
+    private final int[] durations = new int[COUNT];
+
+    private final int[] digits = new int[COUNT];
+    private final int[] nextDigits = new int[COUNT];
+    // ms into the interval of every position and the length of that interval, see ClockFrame#getDigits
+    private final int[] elapsed = new int[COUNT];
+    private final int[] spans = new int[COUNT];
+
+    private final int[] drawnDigits = new int[COUNT];
+    private final int[] drawnNextDigits = new int[COUNT];
+    private final int[] drawnWeights = new int[COUNT];
+
+    private long dayMillis;
+    private int changed;
+    private int animating;
+
+    public FixedClockFrame() {
+        this(ClockLayout.SHIFTS);
+    }
+
+    /**
+     * @param shifts x offset of every position in model units, folded into the shapes once
+     */
+    public FixedClockFrame(float[] shifts) {
+        GlyphSet glyphs = GlyphSet.getDefault();
+        if (GlyphMorph.getDigitSegments(glyphs) > DigitPath.SEGMENTS) {
+            throw new IllegalArgumentException("Digits need more than " + DigitPath.SEGMENTS + " segments");
+        }
+        morph = new GlyphMorph(glyphs, DigitPath.SEGMENTS);
+        for (int i = 0; i < DIGITS; ++i) {
+            digitIndices[i] = glyphs.indexOfDigit(i);
+        }
+        this.shifts = shifts.clone();
+        for (int i = 0; i < COUNT; ++i) {
+            intervals[i] = Math.round(ClockFrame.INTERVALS[i] * 1000);
+            durations[i] = Math.round(ClockFrame.DURATIONS[i] * 1000);
+            weights[i] = bake(Easing.COSINE);
+        }
+        reset();
+    }
+
+    /**
+     * Sets the easing of the digit at {@code position}, 0 being the tens of hours.
+     */
+    public void setEasing(int position, Easing easing) {
+        weights[position] = bake(easing);
+        drawnDigits[position] = -1;
+    }
+
+    private static int[] bake(Easing easing) {
+        int[] table = new int[SAMPLES + 2];
+        for (int i = 0; i <= SAMPLES; ++i) {
+            table[i] = Math.round(easing.ease((float)i / SAMPLES) * (1 << WEIGHT_BITS));
+        }
+        // padding, so progress 1 needs no bounds check
+        table[SAMPLES + 1] = table[SAMPLES];
+        return table;
+    }
+
+    /**
+     * Forces every digit to be recomputed and reported as changed on the next update.
+     */
+    public void reset() {
+        for (int i = 0; i < COUNT; ++i) {
+            drawnDigits[i] = -1;
+        }
+    }
+
+    /**
+     * @param millis local wall clock time in ms, i.e. epoch time plus the zone offset
+     * @return bit mask of the digits whose points changed since the previous update
+     */
+    public int update(long millis) {
+        long day = millis % FrameScheduler.DAY;
+        if (day < 0) {
+            day += FrameScheduler.DAY;
+        }
+        dayMillis = day;
+        setTime((int)day);
+
+        changed = 0;
+        animating = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            int next = digits[i];
+            int weight = 0;
+            int progress = getProgress(i);
+            if (progress > 0) {
+                next = nextDigits[i];
+                weight = getWeight(i, progress);
+                animating |= 1 << i;
+            }
+            if (digits[i] == drawnDigits[i] && next == drawnNextDigits[i] && weight == drawnWeights[i]) {
+                continue;
+            }
+            interpolate(i, digits[i], next, weight);
+            drawnDigits[i] = digits[i];
+            drawnNextDigits[i] = next;
+            drawnWeights[i] = weight;
+            changed |= 1 << i;
+        }
+        return changed;
+    }
+
+    /**
+     * Integer version of {@link ClockFrame#getDigits(int, int[], int[], float[])}.
+     */
+    private void setTime(int time) {
+        int hour = time / 3600000;
+        int minute = time / 60000 % 60;
+        int second = time / 1000 % 60;
+        int ms = time % 1000;
+
+        // Seconds
+        int secondsUnit = second % 10;
+        int secondsTen = second / 10;
+        set(5, secondsUnit, (secondsUnit + 1) % 10, ms, 1000);
+        set(4, secondsTen, (secondsTen + 1) % 6, secondsUnit * 1000 + ms, 10000);
+
+        // Minutes
+        int minutesUnit = minute % 10;
+        int minutesTen = minute / 10;
+        set(3, minutesUnit, (minutesUnit + 1) % 10, second * 1000 + ms, 60000);
+        set(2, minutesTen, (minutesTen + 1) % 6, minutesUnit * 60000 + second * 1000 + ms, 600000);
+
+        // Hours
+        int hoursUnit = hour % 10;
+        int hoursTen = hour / 10;
+        int hoursMillis = minute * 60000 + second * 1000 + ms;
+        set(1, hoursUnit, hour == 23 ? 0 : (hoursUnit + 1) % 10, hoursMillis, 3600000);
+        set(0, hoursTen, (hoursTen + 1) % 3, hoursUnit * 3600000 + hoursMillis, hour == 23 ? 4 * 3600000 : 36000000);
+    }
+
+    private void set(int position, int digit, int nextDigit, int elapsed, int span) {
+        digits[position] = digit;
+        nextDigits[position] = nextDigit;
+        this.elapsed[position] = elapsed;
+        spans[position] = span;
+    }
+
+    /**
+     * Same as {@link BezierAnimator#getProgress(float)}, in 1 / 2^{@link #PROGRESS_BITS} of the morph.
+     */
+    private int getProgress(int position) {
+        int interval = intervals[position];
+        int span = spans[position];
+        // the morph takes the last duration of the interval, a shorter span, like 20:00 to 24:00, is stretched to it
+        long time = span == interval ? elapsed[position] : (long)elapsed[position] * interval / span;
+        long passed = time - (interval - durations[position]);
+        if (passed <= 0) {
+            return 0;
+        }
+        return (int)((passed << PROGRESS_BITS) / durations[position]);
+    }
+
+    private int getWeight(int position, int progress) {
+        int[] table = weights[position];
+        // SAMPLES is 2^8, so the low 8 bits are the position between two samples
+        int index = progress >> (PROGRESS_BITS - 8);
+        int fraction = progress & 0xFF;
+        int from = table[index];
+        return from + (((table[index + 1] - from) * fraction) >> 8);
+    }
+
+    private void interpolate(int position, int digit, int nextDigit, int weight) {
+        short[] from = getShape(position, digit);
+        int offset = position * STRIDE;
+        if (weight == 0 || digit == nextDigit) {
+            for (int j = 0; j < STRIDE; ++j) {
+                points[offset + j] = from[j];
+            }
+            return;
+        }
+        short[] to = getTarget(position, digit, nextDigit);
+        int half = 1 << (WEIGHT_BITS - 1);
+        for (int j = 0; j < STRIDE; ++j) {
+            int a = from[j];
+            points[offset + j] = a + (((to[j] - a) * weight + half) >> WEIGHT_BITS);
+        }
+    }
+
+    private short[] getShape(int position, int digit) {
+        int index = position * DIGITS + digit;
+        short[] shape = shapes[index];
+        if (shape == null) {
+            shape = quantize(morph.getShape(digitIndices[digit]), shifts[position]);
+            shapes[index] = shape;
+        }
+        return shape;
+    }
+
+    private short[] getTarget(int position, int digit, int nextDigit) {
+        int index = (position * DIGITS + digit) * DIGITS + nextDigit;
+        short[] target = targets[index];
+        if (target == null) {
+            target = quantize(morph.getTarget(digitIndices[digit], digitIndices[nextDigit]), shifts[position]);
+            targets[index] = target;
+        }
+        return target;
+    }
+
+    private static short[] quantize(float[] vertices, float shift) {
+        short[] result = new short[vertices.length];
+        for (int j = 0; j < vertices.length; j += 2) {
+            result[j] = (short)Math.round((vertices[j] + shift) * ONE);
+            result[j + 1] = (short)Math.round(vertices[j + 1] * ONE);
+        }
+        return result;
+    }
+
+    /**
+     * Emits the digit at {@code position}, already shifted, in model units.
+     */
+    public void build(PathSink sink, int position) {
+        int k = position * STRIDE;
+        sink.moveTo(points[k] * TO_FLOAT, points[k + 1] * TO_FLOAT);
+        for (int j = 0, p = k + 2; j < DigitPath.SEGMENTS; ++j, p += 6) {
+            sink.cubicTo(
+                    points[p] * TO_FLOAT, points[p + 1] * TO_FLOAT,
+                    points[p + 2] * TO_FLOAT, points[p + 3] * TO_FLOAT,
+                    points[p + 4] * TO_FLOAT, points[p + 5] * TO_FLOAT);
+        }
+    }
+
+    /**
+     * Copies the digit at {@code position} to {@code out[offset]} as floats in model units, already shifted.
+     */
+    public void getPoints(int position, float[] out, int offset) {
+        int k = position * STRIDE;
+        for (int j = 0; j < STRIDE; ++j) {
+            out[offset + j] = points[k + j] * TO_FLOAT;
+        }
+    }
+
+    public int getChanged() {
+        return changed;
+    }
+
+    public boolean isChanged(int position) {
+        return (changed & (1 << position)) != 0;
+    }
+
+    /**
+     * @return bit mask of the digits that are in the middle of a morph
+     */
+    public int getAnimating() {
+        return animating;
+    }
+
+    public int getDigit(int position) {
+        return digits[position];
+    }
+
+    public long getDayMillis() {
+        return dayMillis;
+    }
+}
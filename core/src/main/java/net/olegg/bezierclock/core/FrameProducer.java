@@ -0,0 +1,148 @@
+package net.olegg.bezierclock.core;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Computes the clock once per frame for any number of readers, e.g. several wallpaper engines.
+ * <p>
+ * One thread calls {@link #update()} and publishes the frame under a sequence lock: the sequence
+ * is odd while a frame is written, and {@link #read(FrameSnapshot)} copies the frame out and retries
+ * when the sequence moved meanwhile. Every digit remembers the version it last changed in,
+ * so each reader only copies the digits that changed since its own previous read.
+ * Readers never block the producer and nothing is allocated per frame.
+ */
+public class FrameProducer {
+    private final ClockSource clock;
+    private final ClockFrame frame = new ClockFrame();
+    private final FrameScheduler scheduler;
+
+    // floats are stored as raw int bits, every access is volatile
+    private final AtomicIntegerArray points = new AtomicIntegerArray(ClockFrame.COUNT * ClockFrame.STRIDE);
+    private final AtomicLongArray versions = new AtomicLongArray(ClockFrame.COUNT);
+    private volatile int sequence = 0;
+    private volatile long version = -1;
+    private volatile int animating;
+    private volatile long dayMillis;
+
+    public FrameProducer(ClockSource clock, long frameDelay) {
+        this.clock = clock;
+        scheduler = new FrameScheduler(frameDelay);
+    }
+
+    public ClockSource getClock() {
+        return clock;
+    }
+
+    /**
+     * @see ClockFrame#setChangeThreshold(float, float)
+     */
+    public void setChangeThreshold(float pixels, float scale) {
+        frame.setChangeThreshold(pixels, scale);
+    }
+
+    /**
+     * @see ClockFrame#setEasing(int, Easing)
+     */
+    public void setEasing(int position, Easing easing) {
+        frame.setEasing(position, easing);
+    }
+
+    /**
+     * Applies the frame rate and the visible digits of {@code tier} to the frame timing.
+     */
+    public void setTier(QualityTier tier) {
+        scheduler.setFrameDelay(tier.frameDelay);
+        scheduler.setDigitCount(tier.getDigitCount());
+    }
+
+    /**
+     * @see ClockFrame#prewarm()
+     */
+    public void prewarm() {
+        frame.prewarm();
+    }
+
+    /**
+     * Republishes every digit on the next update, e.g. after the time zone changed.
+     */
+    public void reset() {
+        frame.reset();
+    }
+
+    /**
+     * Computes and publishes the frame for the current time. Must only be called from one thread.
+     *
+     * @return delay in ms before the next frame is needed
+     */
+    public long update() {
+        return update(clock.update());
+    }
+
+    /**
+     * Same as {@link #update()} for a time already read from {@link #getClock()}, so reading the clock
+     * and computing the frame can be timed apart.
+     *
+     * @param millis local wall clock time in ms
+     */
+    public long update(long millis) {
+        frame.update(millis);
+        long next = version + 1;
+
+        sequence++;
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            if (frame.isChanged(i)) {
+                for (int j = i * ClockFrame.STRIDE; j < (i + 1) * ClockFrame.STRIDE; ++j) {
+                    points.set(j, Float.floatToRawIntBits(frame.points[j]));
+                }
+                versions.set(i, next);
+            }
+        }
+        animating = frame.getAnimating();
+        dayMillis = frame.getDayMillis();
+        version = next;
+        sequence++;
+
+        return scheduler.getDelay(frame.getDayMillis());
+    }
+
+    /**
+     * @return version of the latest published frame, -1 before the first one
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Copies the latest published frame into {@code out}. Safe to call from any thread.
+     */
+    public void read(FrameSnapshot out) {
+        long seen = out.version;
+        while (true) {
+            int start = sequence;
+            if ((start & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            int changed = 0;
+            for (int i = 0; i < ClockFrame.COUNT; ++i) {
+                if (versions.get(i) > seen) {
+                    changed |= 1 << i;
+                    for (int j = i * ClockFrame.STRIDE; j < (i + 1) * ClockFrame.STRIDE; ++j) {
+                        out.points[j] = Float.intBitsToFloat(points.get(j));
+                    }
+                }
+            }
+            long readVersion = version;
+            int readAnimating = animating;
+            long readDayMillis = dayMillis;
+            if (sequence == start) {
+                out.version = readVersion;
+                out.changed = changed;
+                out.animating = readAnimating;
+                out.dayMillis = readDayMillis;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Tells the clock engines when the next frame is needed.
+ * Digits only move during the last part of their interval, so outside of these windows
+ * there is nothing to redraw until the next one starts.
+ */
+public class FrameScheduler {
+    public static final long DAY = 24 * 3600000L;
+
+    private final long[] intervals = new long[ClockFrame.COUNT];
+    private final long[] durations = new long[ClockFrame.COUNT];
+
+    private long frameDelay;
+    private int digitCount = ClockFrame.COUNT;
+
+    public FrameScheduler(long frameDelay) {
+        this.frameDelay = frameDelay;
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            intervals[i] = (long)(ClockFrame.INTERVALS[i] * 1000);
+            durations[i] = (long)(ClockFrame.DURATIONS[i] * 1000);
+        }
+    }
+
+    /**
+     * Changes the frame rate inside transition windows, e.g. for a lower {@link QualityTier}.
+     */
+    public void setFrameDelay(long frameDelay) {
+        this.frameDelay = frameDelay;
+    }
+
+    /**
+     * Limits scheduling to the first {@code count} digits, e.g. when seconds are hidden.
+     */
+    public void setDigitCount(int count) {
+        digitCount = Math.max(0, Math.min(count, ClockFrame.COUNT));
+    }
+
+    /**
+     * @param dayMillis local time of the frame just drawn, in ms since midnight
+     * @return delay in ms before the next frame should be drawn
+     */
+    public long getDelay(long dayMillis) {
+        long delay = DAY;
+        for (int i = 0; i < digitCount; ++i) {
+            // the last interval of the day is shorter for hour tens (20..23)
+            long boundary = Math.min((dayMillis / intervals[i] + 1) * intervals[i], DAY);
+            long start = boundary - durations[i];
+            if (dayMillis >= start) {
+                // full rate, with the last frame landing exactly on the boundary
+                delay = Math.min(delay, Math.min(frameDelay, boundary - dayMillis));
+            } else {
+                delay = Math.min(delay, start - dayMillis);
+            }
+        }
+        return Math.max(delay, 1);
+    }
+
+    public static long getDayMillis(int hour, int minute, int second, int millis) {
+        return ((hour * 60L + minute) * 60L + second) * 1000L + millis;
+    }
+}
@@ -0,0 +1,48 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * A reader's copy of the frames published by a {@link FrameProducer}.
+ * Digit {@code i} occupies {@code points[i * ClockFrame.STRIDE] .. points[(i + 1) * ClockFrame.STRIDE - 1]}.
+ */
+public class FrameSnapshot {
+    public final float[] points = new float[ClockFrame.COUNT * ClockFrame.STRIDE];
+
+    long version = -1;
+    int changed;
+    int animating;
+    long dayMillis;
+
+    /**
+     * Makes the next read report every digit as changed.
+     */
+    public void reset() {
+        version = -1;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return bit mask of the digits whose points changed since the previous read into this snapshot
+     */
+    public int getChanged() {
+        return changed;
+    }
+
+    public boolean isChanged(int position) {
+        return (changed & (1 << position)) != 0;
+    }
+
+    public int getAnimating() {
+        return animating;
+    }
+
+    public boolean isAnimating(int position) {
+        return (animating & (1 << position)) != 0;
+    }
+
+    public long getDayMillis() {
+        return dayMillis;
+    }
+}
@@ -0,0 +1,135 @@
+package net.olegg.bezierclock.core;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-phase frame timings. Every phase must be measured on a single thread, though different phases
+ * may be measured on different ones, while {@link #dump(PrintWriter, String)} may be called from any thread.
+ */
+public class FrameStats {
+    public static final int TIME = 0;
+    public static final int UPDATE = 1;
+    public static final int PATH = 2;
+    public static final int DRAW = 3;
+    public static final int POST = 4;
+    public static final int LATENESS = 5;
+    public static final int FRAME = 6;
+    // from the moment an engine is created or shown to its first posted frame
+    public static final int FIRST = 7;
+
+    private static final String[] NAMES = {"time", "update", "path", "draw", "post", "lateness", "frame", "first"};
+    private static final long MS = 1000000L;
+
+    private final Histogram[] histograms = new Histogram[NAMES.length];
+    private final long[] starts = new long[NAMES.length];
+    private final AtomicLong missed = new AtomicLong();
+    private final long budget;
+    private long lateness;
+
+    /**
+     * @param budgetMillis frame duration or lateness above which a frame counts as missed
+     */
+    public FrameStats(long budgetMillis) {
+        budget = budgetMillis * MS;
+        for (int i = 0; i < histograms.length; ++i) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    public static String getName(int phase) {
+        return NAMES[phase];
+    }
+
+    /**
+     * @param lateness how much later than scheduled the frame started, in ns
+     */
+    public void beginFrame(long lateness) {
+        this.lateness = Math.max(lateness, 0);
+        histograms[LATENESS].record(this.lateness);
+        starts[FRAME] = System.nanoTime();
+    }
+
+    public void endFrame() {
+        long duration = System.nanoTime() - starts[FRAME];
+        histograms[FRAME].record(duration);
+        if (duration > budget || lateness > budget) {
+            missed.incrementAndGet();
+        }
+    }
+
+    public void begin(int phase) {
+        starts[phase] = System.nanoTime();
+    }
+
+    public void end(int phase) {
+        histograms[phase].record(System.nanoTime() - starts[phase]);
+    }
+
+    /**
+     * Records a duration measured elsewhere, e.g. one that starts on another thread.
+     */
+    public void record(int phase, long nanos) {
+        histograms[phase].record(nanos);
+    }
+
+    public Histogram getHistogram(int phase) {
+        return histograms[phase];
+    }
+
+    public long getMissed() {
+        return missed.get();
+    }
+
+    public void reset() {
+        for (Histogram histogram : histograms) {
+            histogram.reset();
+        }
+        missed.set(0);
+    }
+
+    public void dump(PrintWriter writer, String prefix) {
+        writer.print(prefix);
+        writer.print("frames=");
+        writer.print(histograms[FRAME].getCount());
+        writer.print(" missed=");
+        writer.println(missed.get());
+        for (int i = 0; i < histograms.length; ++i) {
+            Histogram histogram = histograms[i];
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            writer.print(prefix);
+            writer.print(NAMES[i]);
+            writer.print(": count=");
+            writer.print(histogram.getCount());
+            writer.print(" mean=");
+            writer.print(formatMillis(histogram.getMean()));
+            writer.print(" p50=");
+            writer.print(formatMillis(histogram.getPercentile(50)));
+            writer.print(" p90=");
+            writer.print(formatMillis(histogram.getPercentile(90)));
+            writer.print(" p99=");
+            writer.print(formatMillis(histogram.getPercentile(99)));
+            writer.print(" max=");
+            writer.println(formatMillis(histogram.getMax()));
+        }
+    }
+
+    /**
+     * Appends {@code nanos} as milliseconds with two decimals, without allocating.
+     */
+    public static StringBuilder appendMillis(StringBuilder builder, long nanos) {
+        long hundredths = (nanos + 5000) / 10000;
+        builder.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        return builder.append(fraction).append("ms");
+    }
+
+    private static String formatMillis(long nanos) {
+        return appendMillis(new StringBuilder(), nanos).toString();
+    }
+}
@@ -0,0 +1,246 @@
+package net.olegg.bezierclock.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Morphs between glyphs of a {@link GlyphSet} that may have different numbers of cubic segments.
+ * <p>
+ * Every glyph is brought to the same {@code segments} count by de Casteljau subdivision of its longest
+ * segments, which keeps the outline exactly as it was. For glyphs that had different segment counts,
+ * the target is then reversed and, for closed outlines, rotated to the start point that needs
+ * the least travel. Aligned shapes are cached per glyph and per pair, so a morph frame is one flat lerp.
+ * Glyphs with equal segment counts are taken as authored to correspond and keep their order.
+ */
+public class GlyphMorph {
+    private static final float CLOSED_EPSILON = 1e-3f;
+
+    private final GlyphSet glyphs;
+    private final int segments;
+    private final int size;
+    private final float[][] shapes;
+    private final float[][] targets;
+
+    public GlyphMorph(GlyphSet glyphs, int segments) {
+        this.glyphs = glyphs;
+        this.segments = segments;
+        this.size = 2 + 6 * segments;
+        shapes = new float[glyphs.getCount()][];
+        targets = new float[glyphs.getCount() * glyphs.getCount()][];
+    }
+
+    public GlyphSet getGlyphSet() {
+        return glyphs;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * @return number of floats in every shape, 2 + 6 per segment
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return glyph {@code index} subdivided to {@link #getSegments()}, must not be modified
+     */
+    public float[] getShape(int index) {
+        float[] shape = shapes[index];
+        if (shape == null) {
+            shape = subdivide(glyphs.getVertices(index), segments);
+            shapes[index] = shape;
+        }
+        return shape;
+    }
+
+    /**
+     * @return shape of glyph {@code to}, ordered to match {@link #getShape(int) getShape(from)}, must not be modified
+     */
+    public float[] getTarget(int from, int to) {
+        int pair = from * glyphs.getCount() + to;
+        float[] target = targets[pair];
+        if (target == null) {
+            if (glyphs.getSize(from) == glyphs.getSize(to)) {
+                target = getShape(to);
+            } else {
+                target = align(getShape(from), getShape(to));
+            }
+            targets[pair] = target;
+        }
+        return target;
+    }
+
+    public void interpolate(int from, int to, float ratio, float[] out, int offset) {
+        float[] current = getShape(from);
+        float[] next = getTarget(from, to);
+        for (int i = 0; i < size; ++i) {
+            out[offset + i] = current[i] + (next[i] - current[i]) * ratio;
+        }
+    }
+
+    /**
+     * Builds the shapes of all digits and the targets between every two of them ahead of time,
+     * so the first morphs do not pay for subdivision and alignment.
+     */
+    public void prewarm() {
+        for (int i = 0; i < BezierDigit.DIGITS.length; ++i) {
+            int from = glyphs.indexOfDigit(i);
+            if (from < 0) {
+                continue;
+            }
+            for (int j = 0; j < BezierDigit.DIGITS.length; ++j) {
+                int to = glyphs.indexOfDigit(j);
+                if (to >= 0) {
+                    getTarget(from, to);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return largest number of segments among the digits '0'..'9' of {@code glyphs}, or -1 if any digit is missing
+     */
+    public static int getDigitSegments(GlyphSet glyphs) {
+        int max = 0;
+        for (int i = 0; i < BezierDigit.DIGITS.length; ++i) {
+            int index = glyphs.indexOfDigit(i);
+            if (index < 0) {
+                return -1;
+            }
+            max = Math.max(max, (glyphs.getSize(index) - 2) / 6);
+        }
+        return max;
+    }
+
+    /**
+     * Splits the longest segments of {@code vertices} in half until there are {@code segments} of them.
+     *
+     * @return {@code vertices} itself when it already has that many segments
+     */
+    public static float[] subdivide(float[] vertices, int segments) {
+        int count = (vertices.length - 2) / 6;
+        if (count == segments) {
+            return vertices;
+        }
+        if (count > segments) {
+            throw new IllegalArgumentException("Cannot reduce " + count + " segments to " + segments);
+        }
+        float[] result = new float[2 + 6 * segments];
+        if (count == 0) {
+            for (int i = 0; i < result.length; i += 2) {
+                result[i] = vertices[0];
+                result[i + 1] = vertices[1];
+            }
+            return result;
+        }
+
+        List<float[]> curves = new ArrayList<>(segments);
+        for (int j = 0, k = 0; j < count; ++j, k += 6) {
+            float[] curve = new float[8];
+            System.arraycopy(vertices, k, curve, 0, 8);
+            curves.add(curve);
+        }
+        while (curves.size() < segments) {
+            int longest = 0;
+            float longestLength = -1.0f;
+            for (int j = 0; j < curves.size(); ++j) {
+                float length = getHullLength(curves.get(j));
+                if (length > longestLength) {
+                    longest = j;
+                    longestLength = length;
+                }
+            }
+            float[] c = curves.get(longest);
+            float[] left = new float[8];
+            float[] right = new float[8];
+            for (int i = 0; i < 2; ++i) {
+                float p01 = (c[i] + c[i + 2]) / 2;
+                float p12 = (c[i + 2] + c[i + 4]) / 2;
+                float p23 = (c[i + 4] + c[i + 6]) / 2;
+                float p012 = (p01 + p12) / 2;
+                float p123 = (p12 + p23) / 2;
+                float mid = (p012 + p123) / 2;
+                left[i] = c[i];
+                left[i + 2] = p01;
+                left[i + 4] = p012;
+                left[i + 6] = mid;
+                right[i] = mid;
+                right[i + 2] = p123;
+                right[i + 4] = p23;
+                right[i + 6] = c[i + 6];
+            }
+            curves.set(longest, left);
+            curves.add(longest + 1, right);
+        }
+
+        result[0] = vertices[0];
+        result[1] = vertices[1];
+        for (int j = 0, k = 2; j < segments; ++j, k += 6) {
+            System.arraycopy(curves.get(j), 2, result, k, 6);
+        }
+        return result;
+    }
+
+    private static float getHullLength(float[] c) {
+        float length = 0.0f;
+        for (int i = 0; i < 6; i += 2) {
+            float dx = c[i + 2] - c[i];
+            float dy = c[i + 3] - c[i + 1];
+            length += (float)Math.sqrt(dx * dx + dy * dy);
+        }
+        return length;
+    }
+
+    /**
+     * Reorders {@code to}, which must have as many segments as {@code from}, to the direction and,
+     * when {@code to} is closed, the start segment with the smallest sum of squared point distances.
+     */
+    public static float[] align(float[] from, float[] to) {
+        int points = to.length / 2;
+        int last = points - 1;
+        boolean closed = last > 0
+                && Math.abs(to[0] - to[2 * last]) < CLOSED_EPSILON
+                && Math.abs(to[1] - to[2 * last + 1]) < CLOSED_EPSILON;
+        int rotations = closed ? last / 3 : 1;
+
+        int bestRotation = 0;
+        boolean bestReversed = false;
+        double bestCost = Double.MAX_VALUE;
+        for (int r = 0; r < rotations; ++r) {
+            for (int d = 0; d < 2; ++d) {
+                boolean reversed = d == 1;
+                double cost = 0.0;
+                for (int p = 0; p < points && cost < bestCost; ++p) {
+                    int q = map(p, 3 * r, reversed, closed, last);
+                    double dx = to[2 * q] - from[2 * p];
+                    double dy = to[2 * q + 1] - from[2 * p + 1];
+                    cost += dx * dx + dy * dy;
+                }
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestRotation = r;
+                    bestReversed = reversed;
+                }
+            }
+        }
+
+        float[] result = new float[to.length];
+        for (int p = 0; p < points; ++p) {
+            int q = map(p, 3 * bestRotation, bestReversed, closed, last);
+            result[2 * p] = to[2 * q];
+            result[2 * p + 1] = to[2 * q + 1];
+        }
+        return result;
+    }
+
+    private static int map(int p, int start, boolean reversed, boolean closed, int last) {
+        if (!closed) {
+            return reversed ? last - p : p;
+        }
+        int q = (reversed ? start - p : start + p) % last;
+        return q < 0 ? q + last : q;
+    }
+}
@@ -0,0 +1,254 @@
+package net.olegg.bezierclock.core;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A set of glyph outlines, either the built-in {@link BezierDigit}s or a compact binary file.
+ * <p>
+ * File layout, big-endian:
+ * <pre>
+ * int   magic 'BZGS'
+ * short version
+ * short glyph count
+ * float origin        vertex = origin + quantized * step
+ * float step
+ * glyph count x {
+ *     char  code
+ *     short vertex count, 2 + 6 * segments
+ *     int   first vertex in the data section
+ * }
+ * unsigned short quantized vertices
+ * </pre>
+ * Files are memory-mapped and a glyph is only decoded the first time it is requested.
+ */
+public class GlyphSet {
+    public static final int MAGIC = 0x425a4753; // BZGS
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 8;
+
+    private static GlyphSet defaultSet;
+
+    private final ByteBuffer buffer;
+    private final char[] codes;
+    private final int[] sizes;
+    private final int[] offsets;
+    private final float origin;
+    private final float step;
+    private final int dataStart;
+    private final AtomicReferenceArray<float[]> glyphs;
+
+    private GlyphSet(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        // every read below is absolute, so the whole header is checked against the limit up front
+        int limit = this.buffer.limit();
+        if (limit < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a glyph set");
+        }
+        int version = this.buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported glyph set version " + version);
+        }
+        int count = this.buffer.getShort(6) & 0xFFFF;
+        origin = this.buffer.getFloat(8);
+        step = this.buffer.getFloat(12);
+        if (Float.isNaN(origin) || Float.isInfinite(origin) || Float.isNaN(step) || Float.isInfinite(step)) {
+            throw new IOException("Invalid origin " + origin + " or step " + step);
+        }
+        dataStart = HEADER_SIZE + count * ENTRY_SIZE;
+        if (dataStart > limit) {
+            throw new IOException("Table of " + count + " glyphs ends at " + dataStart + ", past the end at " + limit);
+        }
+
+        codes = new char[count];
+        sizes = new int[count];
+        offsets = new int[count];
+        for (int i = 0, entry = HEADER_SIZE; i < count; ++i, entry += ENTRY_SIZE) {
+            codes[i] = this.buffer.getChar(entry);
+            sizes[i] = this.buffer.getShort(entry + 2) & 0xFFFF;
+            offsets[i] = this.buffer.getInt(entry + 4);
+            if (sizes[i] < 2 || (sizes[i] - 2) % 6 != 0) {
+                throw new IOException("Glyph '" + codes[i] + "' has " + sizes[i]
+                        + " vertices, expected 2 + 6 * segments");
+            }
+            if (offsets[i] < 0) {
+                throw new IOException("Glyph '" + codes[i] + "' has a negative offset " + offsets[i]);
+            }
+            long end = dataStart + 2L * ((long)offsets[i] + sizes[i]);
+            if (end > limit) {
+                throw new IOException("Glyph '" + codes[i] + "' at offset " + offsets[i] + " with " + sizes[i]
+                        + " vertices ends at " + end + ", past the end at " + limit);
+            }
+        }
+        glyphs = new AtomicReferenceArray<>(count);
+    }
+
+    private GlyphSet(char[] codes, float[][] vertices) {
+        buffer = null;
+        this.codes = codes;
+        sizes = new int[codes.length];
+        offsets = new int[codes.length];
+        origin = 0.0f;
+        step = 1.0f;
+        dataStart = 0;
+        glyphs = new AtomicReferenceArray<>(vertices);
+        for (int i = 0; i < codes.length; ++i) {
+            sizes[i] = vertices[i].length;
+        }
+    }
+
+    /**
+     * The built-in digits '0'..'9', backed by {@link BezierDigit} without any decoding.
+     */
+    public static synchronized GlyphSet getDefault() {
+        if (defaultSet == null) {
+            char[] codes = new char[BezierDigit.DIGITS.length];
+            float[][] vertices = new float[BezierDigit.DIGITS.length][];
+            for (int i = 0; i < codes.length; ++i) {
+                codes[i] = (char)('0' + i);
+                vertices[i] = BezierDigit.DIGITS[i].vertices;
+            }
+            defaultSet = new GlyphSet(codes, vertices);
+        }
+        return defaultSet;
+    }
+
+    /**
+     * Maps {@code file} read-only, the mapping stays valid after the file is closed.
+     */
+    public static GlyphSet open(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Reads a glyph set from {@code buffer} in place, without copying it.
+     *
+     * @throws IOException if the header or the glyph table do not fit in the buffer or are malformed
+     */
+    public static GlyphSet wrap(ByteBuffer buffer) throws IOException {
+        return new GlyphSet(buffer);
+    }
+
+    public int getCount() {
+        return codes.length;
+    }
+
+    public char getCode(int index) {
+        return codes[index];
+    }
+
+    /**
+     * @return glyph index for {@code code}, or -1 when the set has no such glyph
+     */
+    public int indexOf(char code) {
+        for (int i = 0; i < codes.length; ++i) {
+            if (codes[i] == code) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int indexOfDigit(int digit) {
+        return indexOf((char)('0' + digit));
+    }
+
+    /**
+     * @return number of floats in the glyph, 2 + 6 per cubic segment
+     */
+    public int getSize(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * @return vertices of the glyph, decoded on first use, must not be modified
+     */
+    public float[] getVertices(int index) {
+        float[] vertices = glyphs.get(index);
+        if (vertices == null) {
+            vertices = new float[sizes[index]];
+            for (int i = 0, position = dataStart + 2 * offsets[index]; i < vertices.length; ++i, position += 2) {
+                vertices[i] = origin + (buffer.getShort(position) & 0xFFFF) * step;
+            }
+            glyphs.compareAndSet(index, null, vertices);
+            vertices = glyphs.get(index);
+        }
+        return vertices;
+    }
+
+    /**
+     * Number of glyphs decoded so far.
+     */
+    public int getDecodedCount() {
+        int decoded = 0;
+        for (int i = 0; i < glyphs.length(); ++i) {
+            if (glyphs.get(i) != null) {
+                decoded++;
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Encodes glyphs into the binary format, quantizing every vertex to a multiple of {@code step}.
+     */
+    public static void write(OutputStream out, char[] codes, float[][] glyphs, float step) throws IOException {
+        if (codes.length != glyphs.length || codes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Expected one code per glyph");
+        }
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (float[] glyph : glyphs) {
+            if ((glyph.length - 2) % 6 != 0 || glyph.length > 0xFFFF) {
+                throw new IllegalArgumentException("Glyphs must consist of cubic segments");
+            }
+            for (float value : glyph) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        if (glyphs.length == 0) {
+            min = 0.0f;
+            max = 0.0f;
+        }
+        if ((max - min) / step > 0xFFFF) {
+            throw new IllegalArgumentException("Step " + step + " is too small for range " + min + ".." + max);
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeShort(codes.length);
+        data.writeFloat(min);
+        data.writeFloat(step);
+        for (int i = 0, offset = 0; i < glyphs.length; ++i) {
+            data.writeChar(codes[i]);
+            data.writeShort(glyphs[i].length);
+            data.writeInt(offset);
+            offset += glyphs[i].length;
+        }
+        for (float[] glyph : glyphs) {
+            for (float value : glyph) {
+                data.writeShort(Math.round((value - min) / step));
+            }
+        }
+        data.flush();
+    }
+}
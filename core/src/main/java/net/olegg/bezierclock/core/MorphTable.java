@@ -0,0 +1,127 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Baked morph keyframes for digit transitions.
+ * Every (from, to) pair gets {@code keyframes} eased shapes stored back to back in one array,
+ * so a morph step is an index lookup and at most one lerp between two neighbouring keyframes.
+ * Tables are built on first use, so only the transitions the clock actually shows take memory.
+ */
+public class MorphTable {
+    private static final int DIGITS = BezierDigit.DIGITS.length;
+
+    private final GlyphMorph morph;
+    private final int[] digitIndices = new int[DIGITS];
+    private final int size;
+    private final int keyframes;
+    private final Easing easing;
+    private final float[][] tables = new float[DIGITS * DIGITS][];
+    private int built = 0;
+
+    public MorphTable(int keyframes) {
+        this(GlyphSet.getDefault(), keyframes);
+    }
+
+    public MorphTable(GlyphSet glyphs, int keyframes) {
+        this(glyphs, DigitPath.SEGMENTS, keyframes);
+    }
+
+    public MorphTable(GlyphSet glyphs, int segments, int keyframes) {
+        this(glyphs, segments, keyframes, Easing.COSINE);
+    }
+
+    public MorphTable(GlyphSet glyphs, int segments, int keyframes, Easing easing) {
+        if (keyframes < 2) {
+            throw new IllegalArgumentException("At least 2 keyframes are required, got " + keyframes);
+        }
+        int required = GlyphMorph.getDigitSegments(glyphs);
+        if (required < 0 || required > segments) {
+            throw new IllegalArgumentException("Digits need " + required + " segments, table has " + segments);
+        }
+        morph = new GlyphMorph(glyphs, segments);
+        size = morph.getSize();
+        for (int i = 0; i < DIGITS; ++i) {
+            digitIndices[i] = glyphs.indexOfDigit(i);
+        }
+        this.keyframes = keyframes;
+        this.easing = easing;
+    }
+
+    public Easing getEasing() {
+        return easing;
+    }
+
+    public GlyphSet getGlyphSet() {
+        return morph.getGlyphSet();
+    }
+
+    public int getSegments() {
+        return morph.getSegments();
+    }
+
+    public int getKeyframes() {
+        return keyframes;
+    }
+
+    public void interpolate(int currentDigit, int nextDigit, float progress, float[] out, int offset) {
+        float[] table = getTable(currentDigit, nextDigit);
+        float position = progress * (keyframes - 1);
+        int index = (int)position;
+        if (index >= keyframes - 1) {
+            System.arraycopy(table, (keyframes - 1) * size, out, offset, size);
+            return;
+        }
+        float fraction = position - index;
+        int from = index * size;
+        if (fraction == 0.0f) {
+            System.arraycopy(table, from, out, offset, size);
+            return;
+        }
+        int to = from + size;
+        for (int i = 0; i < size; ++i) {
+            out[offset + i] = table[from + i] + (table[to + i] - table[from + i]) * fraction;
+        }
+    }
+
+    private float[] getTable(int currentDigit, int nextDigit) {
+        int pair = currentDigit * DIGITS + nextDigit;
+        float[] table = tables[pair];
+        if (table == null) {
+            table = new float[keyframes * size];
+            float[] current = morph.getShape(digitIndices[currentDigit]);
+            float[] next = morph.getTarget(digitIndices[currentDigit], digitIndices[nextDigit]);
+            for (int k = 0, j = 0; k < keyframes; ++k) {
+                float animationRatio = easing.ease((float)k / (keyframes - 1));
+                for (int i = 0; i < size; ++i) {
+                    table[j++] = current[i] + (next[i] - current[i]) * animationRatio;
+                }
+            }
+            tables[pair] = table;
+            built++;
+        }
+        return table;
+    }
+
+    /**
+     * Builds the tables for every transition the clock can show.
+     */
+    public void prepare() {
+        for (int i = 0; i < DIGITS; ++i) {
+            getTable(i, (i + 1) % DIGITS);
+        }
+        // 5 -> 0 for tens of minutes and seconds, 2 -> 0 for tens of hours, 3 -> 0 for 23 -> 00
+        getTable(5, 0);
+        getTable(2, 0);
+        getTable(3, 0);
+    }
+
+    public int getBuiltCount() {
+        return built;
+    }
+
+    /**
+     * @return bytes taken by the tables built so far, without array headers
+     */
+    public long getMemoryBytes() {
+        return (long)built * keyframes * size * 4;
+    }
+}
@@ -0,0 +1,11 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Receiver of digit outlines. Method signatures match {@code android.graphics.Path},
+ * so a {@code Path} subclass can implement it without any code.
+ */
+public interface PathSink {
+    void moveTo(float x, float y);
+
+    void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3);
+}
@@ -0,0 +1,74 @@
+package net.olegg.bezierclock.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal PNG encoder for 8-bit RGB images, so core does not depend on javax.imageio.
+ */
+public final class PngWriter {
+    private static final byte[] SIGNATURE = {(byte)137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int FILTER_SUB = 1;
+
+    private PngWriter() {
+    }
+
+    /**
+     * Writes {@code argb} pixels, row by row, ignoring alpha.
+     */
+    public static void write(OutputStream out, int width, int height, int[] argb) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(8);
+        headerData.writeByte(COLOR_TYPE_RGB);
+        headerData.writeByte(0);
+        headerData.writeByte(0);
+        headerData.writeByte(0);
+        writeChunk(data, "IHDR", header.toByteArray());
+
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        DeflaterOutputStream deflated = new DeflaterOutputStream(image, deflater);
+        byte[] row = new byte[1 + width * 3];
+        row[0] = FILTER_SUB;
+        for (int y = 0; y < height; ++y) {
+            int previous = 0;
+            for (int x = 0, i = y * width, j = 1; x < width; ++x, ++i) {
+                int pixel = argb[i];
+                row[j++] = (byte)((pixel >> 16) - (previous >> 16));
+                row[j++] = (byte)((pixel >> 8) - (previous >> 8));
+                row[j++] = (byte)(pixel - previous);
+                previous = pixel;
+            }
+            deflated.write(row);
+        }
+        deflated.finish();
+        deflater.end();
+        writeChunk(data, "IDAT", image.toByteArray());
+
+        writeChunk(data, "IEND", new byte[0]);
+        data.flush();
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] name = type.getBytes("US-ASCII");
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(name);
+        out.write(data);
+        out.writeInt((int)crc.getValue());
+    }
+}
@@ -0,0 +1,31 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Source of the device power conditions that {@link QualityPolicy} decides on.
+ * Thermal statuses match the values of {@code android.os.PowerManager.THERMAL_STATUS_*}.
+ */
+public interface PowerState {
+    int THERMAL_NONE = 0;
+    int THERMAL_LIGHT = 1;
+    int THERMAL_MODERATE = 2;
+    int THERMAL_SEVERE = 3;
+    int THERMAL_CRITICAL = 4;
+    int THERMAL_EMERGENCY = 5;
+    int THERMAL_SHUTDOWN = 6;
+
+    int LEVEL_UNKNOWN = -1;
+
+    boolean isPowerSaveMode();
+
+    boolean isCharging();
+
+    /**
+     * @return battery charge in percent, or {@link #LEVEL_UNKNOWN}
+     */
+    int getBatteryLevel();
+
+    /**
+     * @return one of the {@code THERMAL_*} constants, {@link #THERMAL_NONE} where the platform does not report it
+     */
+    int getThermalStatus();
+}
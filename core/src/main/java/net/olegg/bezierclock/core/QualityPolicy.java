@@ -0,0 +1,60 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Picks a {@link QualityTier} from the power state:
+ * <ul>
+ * <li>{@link QualityTier#SAVER} with battery saver on, severe heating or a critical battery,</li>
+ * <li>{@link QualityTier#BALANCED} with moderate heating or a low battery,</li>
+ * <li>{@link QualityTier#HIGH} otherwise, and always while charging unless it is too hot.</li>
+ * </ul>
+ * Leaving a battery tier needs {@link #HYSTERESIS} more percent than entering it,
+ * so the tier does not flip with every level change around a threshold.
+ */
+public class QualityPolicy {
+    public static final int LOW_BATTERY = 30;
+    public static final int CRITICAL_BATTERY = 15;
+    public static final int HYSTERESIS = 5;
+
+    private final PowerState source;
+    private QualityTier tier = QualityTier.HIGH;
+
+    public QualityPolicy(PowerState source) {
+        this.source = source;
+    }
+
+    public QualityTier getTier() {
+        return tier;
+    }
+
+    /**
+     * Reads the power state again.
+     *
+     * @return whether the tier changed
+     */
+    public boolean update() {
+        int level = source.getBatteryLevel();
+        boolean onBattery = !source.isCharging() && level != PowerState.LEVEL_UNKNOWN;
+        int thermal = source.getThermalStatus();
+
+        QualityTier next;
+        if (source.isPowerSaveMode()
+                || thermal >= PowerState.THERMAL_SEVERE
+                || onBattery && level <= getThreshold(CRITICAL_BATTERY, QualityTier.SAVER)) {
+            next = QualityTier.SAVER;
+        } else if (thermal >= PowerState.THERMAL_MODERATE
+                || onBattery && level <= getThreshold(LOW_BATTERY, QualityTier.BALANCED)) {
+            next = QualityTier.BALANCED;
+        } else {
+            next = QualityTier.HIGH;
+        }
+        if (next == tier) {
+            return false;
+        }
+        tier = next;
+        return true;
+    }
+
+    private int getThreshold(int level, QualityTier threshold) {
+        return tier.compareTo(threshold) >= 0 ? level + HYSTERESIS : level;
+    }
+}
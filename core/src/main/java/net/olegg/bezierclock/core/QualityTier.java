@@ -0,0 +1,40 @@
+package net.olegg.bezierclock.core;
+
+/**
+ * Rendering settings from the best looking to the cheapest one.
+ */
+public enum QualityTier {
+    HIGH(16, true, true, 1.0f, true),
+    BALANCED(33, true, false, 1.0f, true),
+    SAVER(66, false, false, 0.75f, false);
+
+    /** Frame delay inside transition windows, in ms. */
+    public final long frameDelay;
+    public final boolean antiAlias;
+    public final boolean dither;
+    /** Multiplier for the stroke width of the engine. */
+    public final float strokeScale;
+    public final boolean showSeconds;
+
+    QualityTier(long frameDelay, boolean antiAlias, boolean dither, float strokeScale, boolean showSeconds) {
+        this.frameDelay = frameDelay;
+        this.antiAlias = antiAlias;
+        this.dither = dither;
+        this.strokeScale = strokeScale;
+        this.showSeconds = showSeconds;
+    }
+
+    /**
+     * @return number of leading digits that are drawn, 4 without seconds
+     */
+    public int getDigitCount() {
+        return showSeconds ? ClockFrame.COUNT : ClockFrame.COUNT - 2;
+    }
+
+    /**
+     * @return bit mask of the digits that are drawn, see {@link ClockFrame#getChanged()}
+     */
+    public int getDigitMask() {
+        return (1 << getDigitCount()) - 1;
+    }
+}
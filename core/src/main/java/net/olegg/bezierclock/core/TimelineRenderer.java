@@ -0,0 +1,274 @@
+package net.olegg.bezierclock.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Renders a span of clock time offline, e.g. a whole day for visual checks or promo videos.
+ * Frames are independent, so they are computed on all cores, and only a small window of
+ * frames is in flight at any time, so memory use does not depend on the length of the span.
+ */
+public class TimelineRenderer {
+    public enum Format {
+        /** One file with a header and the control points of every frame. */
+        RAW,
+        /** A numbered PNG per frame. */
+        PNG
+    }
+
+    public static final int RAW_MAGIC = 0x425a544c; // BZTL
+    public static final int RAW_VERSION = 1;
+
+    private static final int FRAMES_PER_THREAD = 4;
+
+    private final long start;
+    private final long end;
+    private final int fps;
+
+    private Format format = Format.PNG;
+    private int width = 1024;
+    private int height = Math.round(1024 * ClockLayout.HEIGHT / ClockLayout.WIDTH);
+    private int foreground = 0xFF000000;
+    private int background = 0xFFFFFFFF;
+    private float strokeWidth = 10.0f;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param start local wall clock time of the first frame, in ms
+     * @param end local wall clock time of the last frame, inclusive, in ms, on the next day if not after
+     *            {@code start}, so e.g. 23:59:50..00:00:10 covers the midnight rollover
+     */
+    public TimelineRenderer(long start, long end, int fps) {
+        if (fps <= 0) {
+            throw new IllegalArgumentException("Invalid timeline " + start + ".." + end + " at " + fps + " fps");
+        }
+        this.start = start;
+        this.end = end <= start ? end + FrameScheduler.DAY : end;
+        this.fps = fps;
+    }
+
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public void setColors(int foreground, int background) {
+        this.foreground = foreground;
+        this.background = background;
+    }
+
+    public void setStrokeWidth(float strokeWidth) {
+        this.strokeWidth = strokeWidth;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public int getFrameCount() {
+        return (int)((end - start) * fps / 1000) + 1;
+    }
+
+    /**
+     * @return local wall clock time of frame {@code index} in ms since midnight, wrapped after midnight
+     */
+    public long getFrameTime(int index) {
+        return (start + index * 1000L / fps) % FrameScheduler.DAY;
+    }
+
+    /**
+     * @param output directory for {@link Format#PNG}, file for {@link Format#RAW}
+     */
+    public void render(File output) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            if (format == Format.RAW) {
+                renderRaw(executor, output);
+            } else {
+                renderPng(executor, output);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void renderRaw(ExecutorService executor, File output) throws IOException, InterruptedException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output)));
+        try {
+            int count = getFrameCount();
+            out.writeInt(RAW_MAGIC);
+            out.writeInt(RAW_VERSION);
+            out.writeInt(count);
+            out.writeInt(fps);
+            out.writeLong(start);
+            out.writeInt(ClockFrame.COUNT);
+            out.writeInt(ClockFrame.STRIDE);
+
+            int window = threads * FRAMES_PER_THREAD;
+            List<Future<float[]>> pending = new ArrayList<>(window);
+            for (int first = 0; first < count; first += window) {
+                pending.clear();
+                for (int i = first; i < Math.min(first + window, count); ++i) {
+                    pending.add(executor.submit(new PointsTask(getFrameTime(i))));
+                }
+                // futures are written in submission order, so the file stays sorted by time
+                for (int i = 0; i < pending.size(); ++i) {
+                    float[] points = get(pending.get(i));
+                    out.writeLong(getFrameTime(first + i));
+                    for (float point : points) {
+                        out.writeFloat(point);
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private void renderPng(ExecutorService executor, File output) throws IOException, InterruptedException {
+        if (!output.isDirectory() && !output.mkdirs()) {
+            throw new IOException("Cannot create " + output);
+        }
+        int count = getFrameCount();
+        int window = threads * FRAMES_PER_THREAD;
+        List<Future<Void>> pending = new ArrayList<>(window);
+        for (int first = 0; first < count; first += window) {
+            pending.clear();
+            for (int i = first; i < Math.min(first + window, count); ++i) {
+                File file = new File(output, String.format(Locale.US, "frame_%06d.png", i));
+                pending.add(executor.submit(new PngTask(getFrameTime(i), file)));
+            }
+            for (Future<Void> future : pending) {
+                get(future);
+            }
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Per-thread frame state, reused across all frames a worker renders.
+     */
+    private class Worker {
+        final ClockFrame frame = new ClockFrame();
+        final DigitRasterizer rasterizer;
+        final int[] pixels;
+
+        Worker() {
+            rasterizer = new DigitRasterizer(width, height);
+            rasterizer.setTransform(ClockLayout.WIDTH, ClockLayout.HEIGHT);
+            rasterizer.setStrokeWidth(strokeWidth);
+            pixels = new int[width * height];
+        }
+
+        void render(long time) {
+            frame.update(time);
+            rasterizer.clear();
+            for (int i = 0; i < ClockFrame.COUNT; ++i) {
+                rasterizer.draw(ClockLayout.SHIFTS[i], frame.points, i * ClockFrame.STRIDE);
+            }
+            rasterizer.toArgb(foreground, background, pixels);
+        }
+    }
+
+    private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+        @Override
+        protected Worker initialValue() {
+            return new Worker();
+        }
+    };
+
+    private class PointsTask implements Callable<float[]> {
+        private final long time;
+
+        PointsTask(long time) {
+            this.time = time;
+        }
+
+        @Override
+        public float[] call() {
+            ClockFrame frame = workers.get().frame;
+            frame.update(time);
+            return frame.points.clone();
+        }
+    }
+
+    private class PngTask implements Callable<Void> {
+        private final long time;
+        private final File file;
+
+        PngTask(long time, File file) {
+            this.time = time;
+            this.file = file;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            Worker worker = workers.get();
+            worker.render(time);
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                PngWriter.write(out, width, height, worker.pixels);
+            } finally {
+                out.close();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Usage: {@code TimelineRenderer <start> <end> <fps> <output> [png|raw] [width]},
+     * where times are {@code HH:mm[:ss[.SSS]]} or ms since midnight and an end not after the start is on the next day.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 4) {
+            System.err.println("Usage: TimelineRenderer <start> <end> <fps> <output> [png|raw] [width]");
+            System.exit(1);
+        }
+        TimelineRenderer renderer = new TimelineRenderer(parseTime(args[0]), parseTime(args[1]), Integer.parseInt(args[2]));
+        if (args.length > 4) {
+            renderer.setFormat(Format.valueOf(args[4].toUpperCase(Locale.US)));
+        }
+        if (args.length > 5) {
+            int width = Integer.parseInt(args[5]);
+            renderer.setSize(width, Math.round(width * ClockLayout.HEIGHT / ClockLayout.WIDTH));
+        }
+        long started = System.nanoTime();
+        renderer.render(new File(args[3]));
+        System.out.println(renderer.getFrameCount() + " frames in " + (System.nanoTime() - started) / 1000000 + " ms");
+    }
+
+    static long parseTime(String value) {
+        if (value.indexOf(':') < 0) {
+            return Long.parseLong(value);
+        }
+        String[] parts = value.split(":");
+        double seconds = parts.length > 2 ? Double.parseDouble(parts[2]) : 0;
+        return (Long.parseLong(parts[0]) * 60 + Long.parseLong(parts[1])) * 60000 + Math.round(seconds * 1000);
+    }
+}
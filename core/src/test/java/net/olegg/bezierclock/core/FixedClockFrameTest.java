@@ -0,0 +1,66 @@
+package net.olegg.bezierclock.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FixedClockFrameTest {
+    private static final int COUNT = ClockFrame.COUNT;
+    private static final int STRIDE = ClockFrame.STRIDE;
+    private static final float TOLERANCE = 0.25f;
+
+    @Test
+    public void matchesClockFrameWithCosine() {
+        assertMatches(Easing.COSINE);
+    }
+
+    @Test
+    public void matchesClockFrameWithSpring() {
+        assertMatches(Easing.forName("spring"));
+    }
+
+    private static void assertMatches(Easing easing) {
+        ClockFrame frame = new ClockFrame();
+        FixedClockFrame fixed = new FixedClockFrame();
+        frame.setEasing(easing);
+        // the tens of hours morph in the last 5 s of 10 h, a float ratio that close to 1 only resolves
+        // its progress in steps of about 1/1000, so that digit is checked against the exact progress
+        BezierAnimator hours = new BezierAnimator(ClockFrame.INTERVALS[0], ClockFrame.DURATIONS[0]);
+        hours.setEasing(easing);
+        for (int i = 0; i < COUNT; ++i) {
+            fixed.setEasing(i, easing);
+        }
+
+        float[] points = new float[STRIDE];
+        float[] expected = new float[STRIDE];
+        float max = 0.0f;
+        // steps of 7 and 331 ms reach every phase of every digit within a day
+        for (long time = 0; time < FrameScheduler.DAY; time += time % 3 == 0 ? 7 : 331) {
+            frame.update(time);
+            fixed.update(time);
+            for (int i = 0; i < COUNT; ++i) {
+                assertEquals("digit " + i + " at " + time, frame.getDigit(i), fixed.getDigit(i));
+                fixed.getPoints(i, points, 0);
+                if (i == 0 && (fixed.getAnimating() & 1) != 0) {
+                    int digit = frame.getDigit(0);
+                    hours.interpolate(digit, (digit + 1) % 3, getHoursProgress(time), expected, 0);
+                } else {
+                    System.arraycopy(frame.points, i * STRIDE, expected, 0, STRIDE);
+                }
+                for (int j = 0; j < STRIDE; ++j) {
+                    float shift = j % 2 == 0 ? ClockLayout.SHIFTS[i] : 0.0f;
+                    max = Math.max(max, Math.abs(points[j] - expected[j] - shift));
+                }
+            }
+        }
+        assertTrue("max deviation " + max, max <= TOLERANCE);
+    }
+
+    private static float getHoursProgress(long time) {
+        long hour = time / 3600000;
+        long span = hour == 23 ? 4 * 3600000L : 36000000L;
+        double elapsed = (double)(time - hour / 10 * 36000000L) * 36000000L / span;
+        return (float)((elapsed - 35995000) / 5000);
+    }
+}
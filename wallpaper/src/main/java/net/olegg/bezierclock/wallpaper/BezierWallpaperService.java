@@ -5,184 +5,622 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Path;
+import android.graphics.Rect;
 import android.graphics.RectF;
+import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.Trace;
 import android.preference.PreferenceManager;
 import android.service.wallpaper.WallpaperService;
 import android.view.SurfaceHolder;
 
-import net.olegg.bezierclock.core.BezierAnimator;
+import net.olegg.bezierclock.common.DigitLayer;
+import net.olegg.bezierclock.core.ClockFrame;
+import net.olegg.bezierclock.core.ClockGrid;
+import net.olegg.bezierclock.core.ClockLayout;
+import net.olegg.bezierclock.core.CurveBounds;
+import net.olegg.bezierclock.core.DigitStateCache;
+import net.olegg.bezierclock.core.FrameStats;
+import net.olegg.bezierclock.core.Histogram;
+import net.olegg.bezierclock.core.QualityTier;
 
-import java.util.Calendar;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 public class BezierWallpaperService extends WallpaperService {
+    private static final int DELAY = 16; //ms
+    private static final float CHANGE_THRESHOLD = 0.25f; //px
+
+    // shared by all engines, so the clock is computed once per frame however many of them are shown
+    private FrameLoop loop;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        loop = new FrameLoop(this, DELAY, CHANGE_THRESHOLD);
+        loop.prewarm();
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        loop.release();
+    }
+
     @Override
     public WallpaperService.Engine onCreateEngine() {
         return new Engine();
     }
 
-    public class Engine extends WallpaperService.Engine implements SharedPreferences.OnSharedPreferenceChangeListener {
+    /**
+     * Paths are built on the {@link FrameLoop} thread and drawn on a render thread of the engine,
+     * neither of them is the main looper. Fields below the buffers are only touched on the render thread,
+     * lifecycle and preference changes are posted to it.
+     */
+    public class Engine extends WallpaperService.Engine
+            implements SharedPreferences.OnSharedPreferenceChangeListener, FrameLoop.Listener {
+        private final HandlerThread renderThread;
+        private final Handler renderHandler;
+
+        // the frame thread fills buffers[back] while the render thread draws the other one
+        private final Object bufferLock = new Object();
+        private final PathBuffer[] buffers = {new PathBuffer(), new PathBuffer()};
+        private int back = 0;
+        private boolean pending = false;
+        private boolean skipped = false;
+        private final Runnable renderRunnable = new Runnable() {
+            @Override
+            public void run() {
+                render();
+            }
+        };
+
+        // held while drawing, so nothing is drawn once onSurfaceDestroyed returns
+        private final Object surfaceLock = new Object();
+        private boolean surfaceReady = false;
+
+        private PathBuffer front;
+        private volatile QualityTier tier;
+        private volatile float scale = 0.0f;
+        private volatile boolean stale = false;
         private int background = Color.WHITE;
         private int foreground = Color.BLACK;
 
+        private static final float STROKE_WIDTH = 10.0f;
         private Paint paint = new Paint();
         private Matrix matrix = new Matrix();
-        private Path path = new Path();
 
-        private final float[] shifts = {0.0f, 300.0f, 800.0f, 1100.0f, 1600.0f, 1900.0f};
-        private final RectF modelRect = new RectF(0.0f, 0.0f, 2380.0f, 550.0f);
+        private final float[] shifts = ClockLayout.SHIFTS;
+        private final RectF modelRect = new RectF(0.0f, 0.0f, ClockLayout.WIDTH, ClockLayout.HEIGHT);
         private final RectF realRect = new RectF();
 
-        private static final int DELAY = 16; //ms
+        // bounds of every digit as it is on the screen, in model space, see CurveBounds
+        private final float[] bounds = new float[ClockFrame.COUNT * 4];
+        private final RectF dirtyModel = new RectF();
+        private final Rect dirty = new Rect();
+        private boolean fullRedraw = true;
 
-        private final Calendar calendar = Calendar.getInstance();
+        private static final int ALL_DIGITS = (1 << ClockFrame.COUNT) - 1;
+        private final DigitLayer layer = new DigitLayer();
+        private boolean layered = true;
+        private volatile boolean lines = false;
 
-        private BezierAnimator[] digits = {
-            new BezierAnimator(36000.0f, 5.0f),
-            new BezierAnimator(3600.0f, 5.0f),
-            new BezierAnimator(600.0f, 5.0f),
-            new BezierAnimator(60.0f, 5.0f),
-            new BezierAnimator(10.0f, 2.0f),
-            new BezierAnimator(1.0f, 1.0f),
-        };
+        // world clocks of the last frame sent to the render thread and their states, frame thread only
+        private ClockGrid drawnGrid;
+        private long[] gridKeys = new long[0];
+        // grid placement, render thread only
+        private int surfaceWidth;
+        private int surfaceHeight;
+        private int gridClocks = -1;
+        private float[] gridOrigins = new float[0];
+        private final RectF gridRect = new RectF();
+        private final RectF surfaceRect = new RectF();
+        private final Matrix gridMatrix = new Matrix();
 
-        private boolean visible = false;
-        private final Handler handler = new Handler();
-        private final Runnable drawRunnable = new Runnable() {
-            @Override
-            public void run() {
-                draw();
-            }
-        };
+        // android.os.Trace appeared in API 18
+        private static final boolean TRACE = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+        private final FrameStats stats = new FrameStats(DELAY);
+        private volatile boolean debug = false;
+        private final Paint debugPaint = new Paint();
+        private final StringBuilder debugText = new StringBuilder();
+
+        // render thread only, see FrameStats#FIRST
+        private SharedPreferences preferences;
+        private long shownAt;
 
         public Engine() {
             super();
-            paint.setStrokeWidth(10);
             paint.setStyle(Paint.Style.STROKE);
-            paint.setDither(true);
-            paint.setAntiAlias(true);
+            applyTier(QualityTier.HIGH);
+
+            debugPaint.setColor(Color.RED);
+            debugPaint.setAntiAlias(true);
+            debugPaint.setTextSize(32);
+
+            renderThread = new HandlerThread("BezierWallpaper render", Process.THREAD_PRIORITY_DISPLAY);
+            renderThread.start();
+            renderHandler = new Handler(renderThread.getLooper());
 
-            SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(getApplicationContext());
-            preferences.registerOnSharedPreferenceChangeListener(this);
-            onSharedPreferenceChanged(preferences, null);
+            // the first read of the preferences file happens on the render thread, not on the main one,
+            // and the render thread handles it before any draw, so no frame shows default colors
+            final long createdAt = System.nanoTime();
+            renderHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    shownAt = createdAt;
+                    preferences = PreferenceManager.getDefaultSharedPreferences(getApplicationContext());
+                    preferences.registerOnSharedPreferenceChangeListener(Engine.this);
+                    loadPreferences(preferences);
+                }
+            });
         }
 
         @Override
         public void onVisibilityChanged(boolean visible) {
-            this.visible = visible;
             if (visible) {
-                draw();
+                final long visibleAt = System.nanoTime();
+                renderHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (shownAt == 0) {
+                            shownAt = visibleAt;
+                        }
+                        fullRedraw = true;
+                    }
+                });
+                // the front buffer may be minutes old, so the next frame is drawn even if nothing moved
+                stale = true;
+                loop.add(this);
             } else {
-                handler.removeCallbacks(drawRunnable);
+                loop.remove(this);
+            }
+        }
+
+        @Override
+        public void onSurfaceCreated(SurfaceHolder holder) {
+            super.onSurfaceCreated(holder);
+            synchronized (surfaceLock) {
+                surfaceReady = true;
             }
         }
 
         @Override
-        public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
-            float partSize = width / modelRect.width();
-            float y = (height - modelRect.height() * partSize) / 2;
-            realRect.set(0, y, width, y + modelRect.height() * partSize);
-            matrix.setRectToRect(modelRect, realRect, Matrix.ScaleToFit.CENTER);
-            draw();
+        public void onSurfaceChanged(SurfaceHolder holder, int format, final int width, final int height) {
+            renderHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    float partSize = width / modelRect.width();
+                    float y = (height - modelRect.height() * partSize) / 2;
+                    realRect.set(0, y, width, y + modelRect.height() * partSize);
+                    matrix.setRectToRect(modelRect, realRect, Matrix.ScaleToFit.CENTER);
+                    scale = partSize;
+                    surfaceWidth = width;
+                    surfaceHeight = height;
+                    gridClocks = -1;
+                    if (layered) {
+                        layer.setBounds(modelRect, matrix);
+                    }
+                    redraw();
+                }
+            });
         }
 
         @Override
         public void onSurfaceDestroyed(SurfaceHolder holder) {
+            // waits for a frame in flight, the holder must not be used after this returns
+            synchronized (surfaceLock) {
+                surfaceReady = false;
+            }
             super.onSurfaceDestroyed(holder);
-            visible = false;
-            handler.removeCallbacks(drawRunnable);
+            loop.remove(this);
+            renderHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    layer.release();
+                }
+            });
         }
 
         @Override
         public void onDestroy() {
+            synchronized (surfaceLock) {
+                surfaceReady = false;
+            }
             super.onDestroy();
-            visible = false;
-            handler.removeCallbacks(drawRunnable);
-        }
-
-        private int getNextInt(int current, int max) {
-            return (current + 1) % max;
-        }
-
-        private void draw() {
-            SurfaceHolder holder = getSurfaceHolder();
-            Canvas canvas = null;
-            try {
-                canvas = holder.lockCanvas();
-
-                if (canvas != null) {
-                    canvas.setMatrix(matrix);
-                    canvas.drawColor(background);
-
-                    calendar.setTimeInMillis(System.currentTimeMillis());
-                    int millis = calendar.get(Calendar.MILLISECOND);
-
-                    int second = calendar.get(Calendar.SECOND);
-                    int secondsUnit = second % 10;
-                    int secondsTen = second / 10;
-                    float secondsUnitRatio = millis / 1000.0f;
-                    float secondsTenRatio = (secondsUnit * 1000 + millis) / 10000.0f;
-                    digits[5].update(secondsUnit, getNextInt(secondsUnit, 10), secondsUnitRatio);
-                    digits[4].update(secondsTen, getNextInt(secondsTen, 6), secondsTenRatio);
-
-                    // Minutes
-                    int minute = calendar.get(Calendar.MINUTE);
-                    int minutesUnit = minute % 10;
-                    int minutesTen = minute / 10;
-                    float minutesUnitRatio = (second * 1000 + millis) / 60000.0f;
-                    float minutesTenRatio = (minutesUnit * 60000 + second * 1000 + millis) / 600000.0f;
-                    digits[3].update(minutesUnit, getNextInt(minutesUnit, 10), minutesUnitRatio);
-                    digits[2].update(minutesTen, getNextInt(minutesTen, 6), minutesTenRatio);
-
-                    // Hours
-                    int hour = calendar.get(Calendar.HOUR_OF_DAY);
-                    int hoursUnit = hour % 10;
-                    int hoursTen = hour / 10;
-                    float hoursUnitRatio = ( minute * 60000 + second * 1000 + millis) / 3600000.0f;
-                    float hoursTenRatio;
-                    int hoursUnitNext;
-                    if (hour == 23) {
-                        hoursUnitNext = 0;
-                        hoursTenRatio = ( hoursUnit * 3600000 + minute * 60000 + second * 1000 + millis) / ( 4 * 3600000.0f);
+            renderHandler.removeCallbacksAndMessages(null);
+            // a tick in flight may still post a frame, so the render thread quits only after the loop let go
+            loop.remove(this, new Runnable() {
+                @Override
+                public void run() {
+                    renderHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            // the preferences are either loaded by now or their load was dropped above
+                            if (preferences != null) {
+                                preferences.unregisterOnSharedPreferenceChangeListener(Engine.this);
+                            }
+                            layer.release();
+                            renderThread.quit();
+                        }
+                    });
+                }
+            });
+        }
+
+        @Override
+        public void onUpdate(long timeNanos, long updateNanos) {
+            // the frame is computed once by the loop, every engine records its cost
+            stats.record(FrameStats.TIME, timeNanos);
+            stats.record(FrameStats.UPDATE, updateNanos);
+        }
+
+        /**
+         * Builds the next frame into the back buffer, on the frame thread.
+         */
+        @Override
+        public void onFrame(long lateness) {
+            PathBuffer buffer;
+            synchronized (bufferLock) {
+                if (pending) {
+                    // the render thread is behind, build again once it takes the pending frame
+                    skipped = true;
+                    return;
+                }
+                buffer = buffers[back];
+            }
+            ClockGrid grid = loop.getGrid();
+            int visibleDigits = loop.getTier().getDigitMask();
+            boolean changed;
+            begin(FrameStats.PATH);
+            if (grid != null) {
+                buffer.build(grid);
+                changed = updateGridKeys(grid, visibleDigits);
+            } else {
+                buffer.build(loop.getProducer(), shifts, lines, scale);
+                changed = (buffer.frame.getChanged() & visibleDigits) != 0;
+            }
+            if (grid != drawnGrid) {
+                // zones changed, the screen shows other clocks even if no digit moved
+                drawnGrid = grid;
+                changed = true;
+            }
+            buffer.lateness = lateness;
+            end(FrameStats.PATH);
+            if (!changed && !stale) {
+                // nothing moved by a visible amount, the screen already shows this frame
+                if (loop.getTier() != tier) {
+                    renderHandler.post(redrawRunnable);
+                }
+                return;
+            }
+            stale = false;
+            synchronized (bufferLock) {
+                pending = true;
+            }
+            renderHandler.post(renderRunnable);
+        }
+
+        /**
+         * Remembers the visible states of {@code grid}.
+         *
+         * @return whether any of them differs from the last grid frame
+         */
+        private boolean updateGridKeys(ClockGrid grid, int visibleDigits) {
+            DigitStateCache cache = grid.getCache();
+            boolean changed = false;
+            if (gridKeys.length != grid.getCount() * ClockFrame.COUNT) {
+                gridKeys = new long[grid.getCount() * ClockFrame.COUNT];
+                changed = true;
+            }
+            for (int c = 0, j = 0; c < grid.getCount(); ++c) {
+                for (int i = 0; i < ClockFrame.COUNT; ++i, ++j) {
+                    if ((visibleDigits & (1 << i)) != 0) {
+                        long key = cache.getKey(grid.getSlot(c, i));
+                        if (gridKeys[j] != key) {
+                            gridKeys[j] = key;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+            return changed;
+        }
+
+        @Override
+        public float getScale() {
+            return scale;
+        }
+
+        private void render() {
+            PathBuffer buffer;
+            boolean rebuild;
+            synchronized (bufferLock) {
+                if (!pending) {
+                    return;
+                }
+                buffer = buffers[back];
+                back = 1 - back;
+                pending = false;
+                rebuild = skipped;
+                skipped = false;
+            }
+            if (rebuild) {
+                loop.request(this);
+            }
+            if (front != null && (front.isLines() != buffer.isLines() || front.isGrid() != buffer.isGrid())) {
+                layer.invalidate();
+                fullRedraw = true;
+            }
+            if (buffer.isGrid()) {
+                // world clocks are drawn whole, without the layer or dirty regions
+                front = buffer;
+                fullRedraw = true;
+                draw(buffer.lateness, ALL_DIGITS);
+                return;
+            }
+
+            // a buffer was last built two frames ago, so its changes cover everything since the front one
+            int changed = buffer.frame.getChanged();
+            int visibleDigits = loop.getTier().getDigitMask();
+            dirtyModel.setEmpty();
+            for (int i = 0; i < ClockFrame.COUNT; ++i) {
+                if ((changed & (1 << i)) != 0) {
+                    boolean visible = (visibleDigits & (1 << i)) != 0;
+                    if (visible) {
+                        unionBounds(i);
+                    }
+                    System.arraycopy(buffer.bounds, i * 4, bounds, i * 4, 4);
+                    if (visible) {
+                        unionBounds(i);
+                    }
+                }
+            }
+            front = buffer;
+            draw(buffer.lateness, changed & visibleDigits);
+        }
+
+        private final Runnable redrawRunnable = new Runnable() {
+            @Override
+            public void run() {
+                redraw();
+            }
+        };
+
+        private void applyTier(QualityTier tier) {
+            this.tier = tier;
+            paint.setAntiAlias(tier.antiAlias);
+            paint.setDither(tier.dither);
+            paint.setStrokeWidth(STROKE_WIDTH * tier.strokeScale);
+            layer.invalidate();
+            fullRedraw = true;
+        }
+
+        private void redraw() {
+            fullRedraw = true;
+            if (front != null) {
+                draw(0, 0);
+            }
+        }
+
+        private void draw(long lateness, int changed) {
+            if (loop.getTier() != tier) {
+                applyTier(loop.getTier());
+            }
+            stats.beginFrame(lateness);
+            synchronized (surfaceLock) {
+                if (surfaceReady) {
+                    drawSurface(changed);
+                } else {
+                    fullRedraw = true;
+                }
+            }
+            stats.endFrame();
+        }
+
+        private void drawSurface(int changed) {
+            PathBuffer buffer = front;
+            if (fullRedraw || changed != 0) {
+                SurfaceHolder holder = getSurfaceHolder();
+                Canvas canvas = null;
+                try {
+                    begin(FrameStats.DRAW);
+                    if (fullRedraw) {
+                        canvas = holder.lockCanvas();
                     } else {
-                        hoursUnitNext = getNextInt(hoursUnit, 10);
-                        hoursTenRatio = (hoursUnit * 3600000 + minute * 60000 + second * 1000 + millis) / 36000000.0f;
+                        // room for the stroke with miter joins, plus a pixel of anti-aliasing
+                        float outset = paint.getStrokeWidth() * 2;
+                        dirtyModel.inset(-outset, -outset);
+                        matrix.mapRect(dirtyModel);
+                        dirtyModel.roundOut(dirty);
+                        dirty.inset(-1, -1);
+                        canvas = holder.lockCanvas(dirty);
                     }
 
-                    digits[1].update(hoursUnit, hoursUnitNext, hoursUnitRatio);
-                    digits[0].update(hoursTen, getNextInt(hoursTen, 3), hoursTenRatio);
-
-                    path.reset();
-                    for (int i = 0; i < 6; ++i) {
-                        path.moveTo(shifts[i] + digits[i].points[0], digits[i].points[1]);
-                        for (int j = 0, k = 2; j < 4; ++j) {
-                            path.cubicTo(
-                                    shifts[i] + digits[i].points[k++], digits[i].points[k++],
-                                    shifts[i] + digits[i].points[k++], digits[i].points[k++],
-                                    shifts[i] + digits[i].points[k++], digits[i].points[k++]);
+                    if (canvas != null && buffer.isGrid()) {
+                        drawGrid(canvas, buffer);
+                        if (debug) {
+                            canvas.setMatrix(null);
+                            drawStats(canvas);
+                        }
+                    } else if (canvas != null) {
+                        // the overlay changes every frame, so it needs the whole surface
+                        fullRedraw = debug;
+                        int visibleDigits = tier.getDigitMask();
+                        int animating = (layered ? buffer.frame.getAnimating() : ALL_DIGITS) & visibleDigits;
+                        // separate lines only join smoothly through their round caps
+                        paint.setStrokeCap(buffer.isLines() ? Paint.Cap.ROUND : Paint.Cap.BUTT);
+                        canvas.setMatrix(null);
+                        canvas.drawColor(background);
+                        if (layered) {
+                            updateLayer(buffer, visibleDigits & ~animating, changed);
+                            layer.draw(canvas);
                         }
+                        canvas.setMatrix(matrix);
+                        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+                            if ((animating & (1 << i)) != 0) {
+                                buffer.draw(canvas, i, paint);
+                            }
+                        }
+                        if (debug) {
+                            canvas.setMatrix(null);
+                            drawStats(canvas);
+                        }
+                    } else {
+                        fullRedraw = true;
                     }
+                    end(FrameStats.DRAW);
+                } finally {
+                    if (canvas != null) {
+                        begin(FrameStats.POST);
+                        holder.unlockCanvasAndPost(canvas);
+                        end(FrameStats.POST);
+                        if (shownAt != 0) {
+                            stats.record(FrameStats.FIRST, System.nanoTime() - shownAt);
+                            shownAt = 0;
+                        }
+                    }
+                }
+            }
+        }
 
-                    canvas.drawPath(path, paint);
+        private void drawGrid(Canvas canvas, PathBuffer buffer) {
+            int clocks = buffer.getClocks();
+            if (clocks != gridClocks) {
+                gridClocks = clocks;
+                int columns = ClockLayout.getColumns(clocks, surfaceWidth, surfaceHeight);
+                gridRect.set(0.0f, 0.0f, ClockLayout.getGridWidth(columns),
+                        ClockLayout.getGridHeight(ClockLayout.getRows(clocks, columns)));
+                surfaceRect.set(0.0f, 0.0f, surfaceWidth, surfaceHeight);
+                gridMatrix.setRectToRect(gridRect, surfaceRect, Matrix.ScaleToFit.CENTER);
+                gridOrigins = new float[clocks * 2];
+                for (int c = 0; c < clocks; ++c) {
+                    ClockLayout.getOrigin(c, columns, gridOrigins, c * 2);
                 }
-            } finally {
-                if (canvas != null) {
-                    holder.unlockCanvasAndPost(canvas);
+            }
+            int visibleDigits = tier.getDigitMask();
+            paint.setStrokeCap(Paint.Cap.BUTT);
+            canvas.setMatrix(null);
+            canvas.drawColor(background);
+            canvas.setMatrix(gridMatrix);
+            for (int c = 0; c < clocks; ++c) {
+                for (int i = 0; i < ClockFrame.COUNT; ++i) {
+                    if ((visibleDigits & (1 << i)) != 0) {
+                        canvas.save();
+                        canvas.translate(gridOrigins[c * 2] + shifts[i], gridOrigins[c * 2 + 1]);
+                        buffer.drawGrid(canvas, c, i, paint);
+                        canvas.restore();
+                    }
                 }
             }
-            handler.removeCallbacks(drawRunnable);
+        }
 
-            if (visible) {
-                handler.postDelayed(drawRunnable, DELAY);
+        private void begin(int phase) {
+            stats.begin(phase);
+            if (TRACE && debug) {
+                Trace.beginSection(FrameStats.getName(phase));
             }
         }
 
+        private void end(int phase) {
+            if (TRACE && debug) {
+                Trace.endSection();
+            }
+            stats.end(phase);
+        }
+
+        private void drawStats(Canvas canvas) {
+            Histogram frames = stats.getHistogram(FrameStats.FRAME);
+            float lineHeight = debugPaint.getTextSize() * 1.25f;
+            debugText.setLength(0);
+            debugText.append("frame p50 ");
+            FrameStats.appendMillis(debugText, frames.getPercentile(50)).append(" p99 ");
+            FrameStats.appendMillis(debugText, frames.getPercentile(99));
+            canvas.drawText(debugText, 0, debugText.length(), lineHeight, lineHeight * 2, debugPaint);
+            debugText.setLength(0);
+            debugText.append("late p99 ");
+            FrameStats.appendMillis(debugText, stats.getHistogram(FrameStats.LATENESS).getPercentile(99));
+            debugText.append(" missed ").append(stats.getMissed()).append('/').append(frames.getCount());
+            canvas.drawText(debugText, 0, debugText.length(), lineHeight, lineHeight * 3, debugPaint);
+        }
+
         @Override
-        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-            background = sharedPreferences.getInt(BezierWallpaperSettings.BACKGROUND, Color.WHITE);
-            foreground = sharedPreferences.getInt(BezierWallpaperSettings.FOREGROUND, Color.BLACK);
+        protected void dump(String prefix, FileDescriptor fd, PrintWriter out, String[] args) {
+            super.dump(prefix, fd, out, args);
+            out.print(prefix);
+            out.println("Frame stats:");
+            stats.dump(out, prefix + "  ");
+        }
+
+        private void updateLayer(PathBuffer buffer, int staticMask, int changed) {
+            if (layer.isStale(staticMask, changed)) {
+                Canvas layerCanvas = layer.begin(staticMask);
+                layerCanvas.drawColor(background);
+                for (int i = 0; i < ClockFrame.COUNT; ++i) {
+                    if ((staticMask & (1 << i)) != 0) {
+                        buffer.draw(layerCanvas, i, paint);
+                    }
+                }
+                layer.end();
+            }
+        }
+
+        private void unionBounds(int position) {
+            int offset = position * 4;
+            if (bounds[offset + CurveBounds.LEFT] < bounds[offset + CurveBounds.RIGHT]) {
+                dirtyModel.union(
+                        bounds[offset + CurveBounds.LEFT], bounds[offset + CurveBounds.TOP],
+                        bounds[offset + CurveBounds.RIGHT], bounds[offset + CurveBounds.BOTTOM]);
+            }
+        }
+
+        @Override
+        public void onSharedPreferenceChanged(final SharedPreferences sharedPreferences, String key) {
+            // called on the main thread, the preferences are applied on the render thread like the first time
+            renderHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    loadPreferences(sharedPreferences);
+                }
+            });
+        }
+
+        /**
+         * Applies all preferences, on the render thread.
+         */
+        private void loadPreferences(SharedPreferences sharedPreferences) {
+            int background = sharedPreferences.getInt(BezierWallpaperSettings.BACKGROUND, Color.WHITE);
+            int foreground = sharedPreferences.getInt(BezierWallpaperSettings.FOREGROUND, Color.BLACK);
+            boolean layered = sharedPreferences.getBoolean(BezierWallpaperSettings.LAYER, true);
+            boolean lines = sharedPreferences.getBoolean(BezierWallpaperSettings.LINES, false);
+            if (lines != this.lines) {
+                this.lines = lines;
+                // the next frame rebuilds every digit, so it is drawn even if nothing moved
+                stale = true;
+            }
+            debug = sharedPreferences.getBoolean(BezierWallpaperSettings.DEBUG, false);
+            String easing = sharedPreferences.getString(BezierWallpaperSettings.EASING, "cosine");
+            String secondsEasing = sharedPreferences.getString(BezierWallpaperSettings.SECONDS_EASING, "cosine");
+            loop.setEasing(easing, secondsEasing);
+            loop.setZones(sharedPreferences.getString(BezierWallpaperSettings.ZONES, ""));
+            applyPreferences(background, foreground, layered);
+        }
+
+        private void applyPreferences(int background, int foreground, boolean layered) {
+            this.background = background;
+            this.foreground = foreground;
             paint.setColor(foreground);
+            boolean wasLayered = this.layered;
+            this.layered = layered;
+            if (!layered) {
+                layer.release();
+            } else if (!wasLayered && !realRect.isEmpty()) {
+                layer.setBounds(modelRect, matrix);
+            }
+            layer.invalidate();
+            redraw();
         }
     }
-}
\ No newline at end of file
+}
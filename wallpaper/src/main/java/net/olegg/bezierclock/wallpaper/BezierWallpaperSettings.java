@@ -8,6 +8,12 @@ import net.olegg.bezierclock.R;
 public class BezierWallpaperSettings extends PreferenceActivity {
     public static final String BACKGROUND = "background";
     public static final String FOREGROUND = "foreground";
+    public static final String LAYER = "layer";
+    public static final String LINES = "lines";
+    public static final String DEBUG = "debug";
+    public static final String EASING = "easing";
+    public static final String SECONDS_EASING = "seconds_easing";
+    public static final String ZONES = "zones";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
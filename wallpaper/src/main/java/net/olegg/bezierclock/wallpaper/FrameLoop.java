@@ -0,0 +1,382 @@
+package net.olegg.bezierclock.wallpaper;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import net.olegg.bezierclock.common.AndroidPowerState;
+import net.olegg.bezierclock.core.ClockFrame;
+import net.olegg.bezierclock.core.ClockGrid;
+import net.olegg.bezierclock.core.ClockLayout;
+import net.olegg.bezierclock.core.ClockSource;
+import net.olegg.bezierclock.core.Easing;
+import net.olegg.bezierclock.core.FrameProducer;
+import net.olegg.bezierclock.core.QualityPolicy;
+import net.olegg.bezierclock.core.QualityTier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * One frame timer for all engines of the process, e.g. the picker preview and the home screen.
+ * Each tick computes the frame once in {@link FrameProducer} and then lets every visible engine
+ * build its paths. Ticks run on a thread of their own, never on the main looper,
+ * and {@link Listener#onFrame(long)} is always called on it.
+ * The loop also picks the {@link QualityTier} for all engines from the power state, and computes
+ * the world clocks, if any, once per tick for all engines too.
+ */
+class FrameLoop {
+    interface Listener {
+        /**
+         * Called before {@link #onFrame(long)} whenever the frame was computed anew.
+         *
+         * @param timeNanos time spent reading the clock
+         * @param updateNanos time spent computing the frame and the world clocks
+         */
+        void onUpdate(long timeNanos, long updateNanos);
+
+        void onFrame(long lateness);
+
+        /**
+         * @return output pixels per model unit, 0 while unknown
+         */
+        float getScale();
+    }
+
+    private static final long POWER_CHECK_INTERVAL = 10000000000L; // 10 s in ns
+
+    private final Context context;
+    private final FrameProducer producer;
+    private final float changeThreshold;
+    private final AndroidPowerState power;
+    private final QualityPolicy policy;
+    private volatile QualityTier tier = QualityTier.HIGH;
+    private long powerCheckedAt;
+    private String digitsEasing = "cosine";
+    private String secondsEasing = "cosine";
+    // world clocks of the zones preference, null for none, frame thread only
+    private String zones = "";
+    private ClockGrid grid;
+    private final List<Listener> listeners = new ArrayList<>();
+    private final HandlerThread thread;
+    private final Handler handler;
+    private long tickScheduledAt;
+    private final Runnable tickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            tick(System.nanoTime() - tickScheduledAt);
+        }
+    };
+
+    /**
+     * @param changeThreshold fraction of a pixel a digit must move by to be drawn again, see ClockFrame#setChangeThreshold
+     */
+    FrameLoop(Context context, long frameDelay, float changeThreshold) {
+        this.context = context;
+        this.changeThreshold = changeThreshold;
+        producer = new FrameProducer(new ClockSource(), frameDelay);
+        power = new AndroidPowerState(context);
+        policy = new QualityPolicy(power);
+        thread = new HandlerThread("BezierClock frames", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public FrameProducer getProducer() {
+        return producer;
+    }
+
+    /**
+     * Safe to call from any thread.
+     */
+    public QualityTier getTier() {
+        return tier;
+    }
+
+    /**
+     * Starts delivering frames to {@code listener}, beginning with one right away.
+     */
+    public void add(final Listener listener) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (listeners.contains(listener)) {
+                    return;
+                }
+                listeners.add(listener);
+                if (listeners.size() == 1) {
+                    registerReceiver();
+                    power.start(powerListener, handler);
+                    producer.getClock().setTimeZone(TimeZone.getDefault());
+                    updateTier();
+                }
+                tick(0);
+            }
+        });
+    }
+
+    public void remove(Listener listener) {
+        remove(listener, null);
+    }
+
+    /**
+     * Stops delivering frames to {@code listener}, then runs {@code removed} on the frame thread,
+     * after which {@code listener} is not called any more.
+     */
+    public void remove(final Listener listener, final Runnable removed) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                listeners.remove(listener);
+                if (listeners.isEmpty()) {
+                    unregisterReceiver();
+                    power.stop();
+                    handler.removeCallbacks(tickRunnable);
+                }
+                if (removed != null) {
+                    removed.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the easing of hours and minutes and the one of seconds by {@link Easing#forName(String)} names.
+     */
+    public void setEasing(final String digits, final String seconds) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!digits.equals(digitsEasing)) {
+                    digitsEasing = digits;
+                    Easing easing = getEasing(digits);
+                    for (int i = 0; i < ClockFrame.COUNT - 2; ++i) {
+                        producer.setEasing(i, easing);
+                    }
+                }
+                if (!seconds.equals(secondsEasing)) {
+                    secondsEasing = seconds;
+                    Easing easing = getEasing(seconds);
+                    for (int i = ClockFrame.COUNT - 2; i < ClockFrame.COUNT; ++i) {
+                        producer.setEasing(i, easing);
+                    }
+                }
+                if (grid != null) {
+                    applyEasing(grid);
+                }
+            }
+        });
+    }
+
+    private void applyEasing(ClockGrid grid) {
+        Easing digits = getEasing(digitsEasing);
+        Easing seconds = getEasing(secondsEasing);
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            grid.setEasing(i, i < ClockFrame.COUNT - 2 ? digits : seconds);
+        }
+    }
+
+    /**
+     * Shows world clocks for the comma separated {@code zones}, or none when there are none.
+     * The preference is shared by the whole process, so all engines show the same grid.
+     */
+    public void setZones(final String zones) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (zones.equals(FrameLoop.this.zones)) {
+                    return;
+                }
+                FrameLoop.this.zones = zones;
+                grid = createGrid(zones);
+                if (!listeners.isEmpty()) {
+                    tick(0);
+                }
+            }
+        });
+    }
+
+    private ClockGrid createGrid(String zones) {
+        List<TimeZone> timeZones = new ArrayList<>();
+        for (String zone : zones.split(",")) {
+            if (!zone.trim().isEmpty()) {
+                timeZones.add(TimeZone.getTimeZone(zone.trim()));
+            }
+        }
+        if (timeZones.isEmpty()) {
+            return null;
+        }
+        ClockGrid grid = new ClockGrid(timeZones.toArray(new TimeZone[timeZones.size()]));
+        applyEasing(grid);
+        return grid;
+    }
+
+    /**
+     * @return world clocks updated for the current tick, or null when only the local clock is shown.
+     *         Frame thread only, e.g. from {@link Listener#onFrame(long)}.
+     */
+    public ClockGrid getGrid() {
+        return grid;
+    }
+
+    private static Easing getEasing(String name) {
+        try {
+            return Easing.forName(name);
+        } catch (IllegalArgumentException e) {
+            return Easing.COSINE;
+        }
+    }
+
+    /**
+     * Pays for the cold paths of the first frame ahead of time: class loading, glyph shapes and their alignment,
+     * the time zone offset, and building and stroking digit paths. Runs on the frame thread, so it is done
+     * before any engine asks for a frame.
+     */
+    public void prewarm() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                producer.prewarm();
+                producer.update();
+                PathBuffer buffer = new PathBuffer();
+                buffer.build(producer, ClockLayout.SHIFTS);
+                // a small software canvas is enough for the stroker to be loaded and compiled
+                Bitmap bitmap = Bitmap.createBitmap(64, 16, Bitmap.Config.ARGB_8888);
+                Canvas canvas = new Canvas(bitmap);
+                canvas.scale(64 / ClockLayout.WIDTH, 64 / ClockLayout.WIDTH);
+                Paint paint = new Paint();
+                paint.setStyle(Paint.Style.STROKE);
+                paint.setAntiAlias(true);
+                paint.setStrokeWidth(10.0f);
+                for (int i = 0; i < ClockFrame.COUNT; ++i) {
+                    canvas.drawPath(buffer.paths[i], paint);
+                }
+                bitmap.recycle();
+            }
+        });
+    }
+
+    /**
+     * Delivers the latest frame to {@code listener} once more, e.g. when it had to skip one.
+     */
+    public void request(final Listener listener) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (listeners.contains(listener)) {
+                    listener.onFrame(0);
+                }
+            }
+        });
+    }
+
+    public void release() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                listeners.clear();
+                unregisterReceiver();
+                power.stop();
+                thread.quit();
+            }
+        });
+    }
+
+    private void tick(long lateness) {
+        handler.removeCallbacks(tickRunnable);
+        if (System.nanoTime() - powerCheckedAt > POWER_CHECK_INTERVAL) {
+            // there is no thermal broadcast, so the power state is also checked while drawing
+            updateTier();
+        }
+        // the largest engine needs the smallest threshold
+        float scale = 0.0f;
+        for (int i = 0; i < listeners.size(); ++i) {
+            scale = Math.max(scale, listeners.get(i).getScale());
+        }
+        producer.setChangeThreshold(changeThreshold, scale);
+        long start = System.nanoTime();
+        long millis = producer.getClock().update();
+        long read = System.nanoTime();
+        long delay = producer.update(millis);
+        if (grid != null) {
+            // same clock reading as the local frame, as epoch time
+            grid.update(millis - producer.getClock().getOffset());
+        }
+        long updated = System.nanoTime();
+        for (int i = 0; i < listeners.size(); ++i) {
+            listeners.get(i).onUpdate(read - start, updated - read);
+        }
+        for (int i = 0; i < listeners.size(); ++i) {
+            listeners.get(i).onFrame(lateness);
+        }
+        if (!listeners.isEmpty()) {
+            tickScheduledAt = System.nanoTime() + delay * 1000000L;
+            handler.postDelayed(tickRunnable, delay);
+        }
+    }
+
+    private void updateTier() {
+        powerCheckedAt = System.nanoTime();
+        if (policy.update()) {
+            tier = policy.getTier();
+            producer.setTier(tier);
+        }
+    }
+
+    // called on the frame thread, power broadcasts are delivered to its handler
+    private final Runnable powerListener = new Runnable() {
+        @Override
+        public void run() {
+            if (listeners.isEmpty()) {
+                return;
+            }
+            QualityTier previous = tier;
+            updateTier();
+            if (tier != previous) {
+                tick(0);
+            }
+        }
+    };
+
+    private boolean timeZoneReceiverRegistered = false;
+    private final BroadcastReceiver timeZoneReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final TimeZone timeZone = TimeZone.getTimeZone(intent.getStringExtra("time-zone"));
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    producer.getClock().setTimeZone(timeZone);
+                    if (!listeners.isEmpty()) {
+                        tick(0);
+                    }
+                }
+            });
+        }
+    };
+
+    private void registerReceiver() {
+        if (timeZoneReceiverRegistered) {
+            return;
+        }
+        timeZoneReceiverRegistered = true;
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+        context.registerReceiver(timeZoneReceiver, filter);
+    }
+
+    private void unregisterReceiver() {
+        if (!timeZoneReceiverRegistered) {
+            return;
+        }
+        timeZoneReceiverRegistered = false;
+        context.unregisterReceiver(timeZoneReceiver);
+    }
+}
@@ -0,0 +1,146 @@
+package net.olegg.bezierclock.wallpaper;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import net.olegg.bezierclock.common.SinkPath;
+import net.olegg.bezierclock.core.ClockFrame;
+import net.olegg.bezierclock.core.ClockGrid;
+import net.olegg.bezierclock.core.CurveBounds;
+import net.olegg.bezierclock.core.DigitPath;
+import net.olegg.bezierclock.core.DigitPolyline;
+import net.olegg.bezierclock.core.DigitStateCache;
+import net.olegg.bezierclock.core.FrameProducer;
+import net.olegg.bezierclock.core.FrameSnapshot;
+
+/**
+ * Paths of one frame. An engine keeps two of them, so the frame thread builds the next frame
+ * into one buffer while the render thread draws and posts the other.
+ */
+class PathBuffer {
+    public final FrameSnapshot frame = new FrameSnapshot();
+    public final SinkPath[] paths = new SinkPath[ClockFrame.COUNT];
+    // used instead of paths when the buffer is built as lines
+    public final DigitPolyline[] polylines = new DigitPolyline[ClockFrame.COUNT];
+    // model space bounds of every digit, see CurveBounds
+    public final float[] bounds = new float[ClockFrame.COUNT * 4];
+    public long lateness;
+
+    PathBuffer() {
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            paths[i] = new SinkPath();
+            polylines[i] = new DigitPolyline();
+        }
+    }
+
+    private boolean lines = false;
+    private float scale = 0.0f;
+
+    // world clocks, one path per state slot of the grid, see ClockGrid
+    private int clocks = 0;
+    private int[] slots = new int[0];
+    private SinkPath[] slotPaths = new SinkPath[0];
+    private long[] slotKeys = new long[0];
+
+    public void build(FrameProducer producer, float[] shifts) {
+        build(producer, shifts, false, 0.0f);
+    }
+
+    /**
+     * Brings the buffer to the latest published frame, rebuilding only the digits that changed
+     * since this buffer was built the last time, or all of them when it was built another way.
+     *
+     * @param lines whether to build {@link #polylines} instead of {@link #paths}
+     * @param scale output pixels per model unit, which sets the number of lines, 0 while unknown
+     */
+    public void build(FrameProducer producer, float[] shifts, boolean lines, float scale) {
+        producer.read(frame);
+        clocks = 0;
+        boolean all = lines != this.lines || (lines && scale != this.scale);
+        this.lines = lines;
+        this.scale = scale;
+        for (int i = 0; i < ClockFrame.COUNT; ++i) {
+            if (all || frame.isChanged(i)) {
+                if (lines) {
+                    polylines[i].setScale(scale > 0.0f ? scale : 1.0f);
+                    polylines[i].build(shifts[i], frame.points, i * ClockFrame.STRIDE);
+                } else {
+                    paths[i].reset();
+                    DigitPath.build(paths[i], shifts[i], frame.points, i * ClockFrame.STRIDE);
+                }
+            }
+            if (frame.isChanged(i)) {
+                CurveBounds.compute(frame.points, i * ClockFrame.STRIDE, shifts[i], bounds, i * 4);
+            }
+        }
+    }
+
+    /**
+     * Takes the digits of an updated {@code grid}, building paths only for states this buffer has not built yet.
+     * Paths are built without shifts, see {@link #drawGrid(Canvas, int, int, Paint)}.
+     */
+    public void build(ClockGrid grid) {
+        DigitStateCache cache = grid.getCache();
+        int capacity = cache.getCapacity();
+        if (slotPaths.length != capacity) {
+            slotPaths = new SinkPath[capacity];
+            slotKeys = new long[capacity];
+            for (int i = 0; i < capacity; ++i) {
+                slotPaths[i] = new SinkPath();
+                slotKeys[i] = -1;
+            }
+        }
+        clocks = grid.getCount();
+        if (slots.length != clocks * ClockFrame.COUNT) {
+            slots = new int[clocks * ClockFrame.COUNT];
+        }
+        float[] points = grid.getPoints();
+        for (int c = 0, j = 0; c < clocks; ++c) {
+            for (int i = 0; i < ClockFrame.COUNT; ++i, ++j) {
+                int slot = grid.getSlot(c, i);
+                slots[j] = slot;
+                long key = cache.getKey(slot);
+                if (slotKeys[slot] != key) {
+                    slotKeys[slot] = key;
+                    slotPaths[slot].reset();
+                    DigitPath.build(slotPaths[slot], 0.0f, points, slot * grid.getStride(), grid.getSegments());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of world clocks, 0 when the buffer holds the local clock
+     */
+    public int getClocks() {
+        return clocks;
+    }
+
+    public boolean isGrid() {
+        return clocks > 0;
+    }
+
+    /**
+     * Draws the digit at {@code position} of world clock {@code clock} at the origin of {@code canvas}.
+     */
+    public void drawGrid(Canvas canvas, int clock, int position, Paint paint) {
+        canvas.drawPath(slotPaths[slots[clock * ClockFrame.COUNT + position]], paint);
+    }
+
+    public boolean isLines() {
+        return lines;
+    }
+
+    public void draw(Canvas canvas, int position, Paint paint) {
+        if (lines) {
+            DigitPolyline polyline = polylines[position];
+            canvas.drawLines(polyline.getLines(), 0, polyline.getCount(), paint);
+        } else {
+            canvas.drawPath(paths[position], paint);
+        }
+    }
+
+    public boolean isEmpty() {
+        return frame.getVersion() < 0;
+    }
+}
@@ -1,5 +1,6 @@
 package net.olegg.bezierclock.watchface;
 
+import android.app.ActivityManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -8,18 +9,33 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Trace;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
-import android.text.format.Time;
 import android.view.Gravity;
 import android.view.SurfaceHolder;
 
-import net.olegg.bezierclock.core.BezierAnimator;
-
+import net.olegg.bezierclock.BuildConfig;
+import net.olegg.bezierclock.common.AndroidPowerState;
+import net.olegg.bezierclock.common.DigitLayer;
+import net.olegg.bezierclock.common.SinkPath;
+import net.olegg.bezierclock.core.ClockFrame;
+import net.olegg.bezierclock.core.ClockLayout;
+import net.olegg.bezierclock.core.ClockSource;
+import net.olegg.bezierclock.core.DigitPath;
+import net.olegg.bezierclock.core.FixedClockFrame;
+import net.olegg.bezierclock.core.FrameScheduler;
+import net.olegg.bezierclock.core.FrameStats;
+import net.olegg.bezierclock.core.Histogram;
+import net.olegg.bezierclock.core.QualityPolicy;
+import net.olegg.bezierclock.core.QualityTier;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.TimeZone;
 
 /**
@@ -42,24 +58,69 @@ public class BezierWatchFaceService extends CanvasWatchFaceService {
         private Paint paint = new Paint();
         private Paint ambientPaint = new Paint();
         private Matrix matrix = new Matrix();
-        private Path path = new Path();
+        private final SinkPath[] paths = new SinkPath[ClockFrame.COUNT];
+        private final GlyphCache glyphCache = new GlyphCache();
+        private final float[] glyphOrigin = new float[2];
+        private final int[] ambientDigits = new int[4];
+        private final float[] matrixValues = new float[9];
+
+        private static final float STROKE_WIDTH = 20.0f;
+        private static final long POWER_CHECK_INTERVAL = 10000000000L; // 10 s in ns
+        private AndroidPowerState power;
+        private QualityPolicy policy;
+        private QualityTier tier = QualityTier.HIGH;
+        private long powerCheckedAt;
+        private final Runnable powerListener = new Runnable() {
+            @Override
+            public void run() {
+                if (updateTier()) {
+                    invalidate();
+                }
+            }
+        };
+        private final DigitLayer layer = new DigitLayer();
+        private final Rect layerBounds = new Rect();
 
-        private final float[] shifts = {0.0f, 300.0f, 800.0f, 1100.0f, 1600.0f, 1900.0f};
-        private final RectF modelRect = new RectF(0.0f, 0.0f, 2380.0f, 550.0f);
-        private final RectF ambientRect = new RectF(0.0f, 0.0f, 1580.0f, 550.0f);
+        private final float[] shifts = ClockLayout.SHIFTS;
+        private final RectF modelRect = new RectF(0.0f, 0.0f, ClockLayout.WIDTH, ClockLayout.HEIGHT);
+        private final RectF ambientRect = new RectF(0.0f, 0.0f, ClockLayout.AMBIENT_WIDTH, ClockLayout.HEIGHT);
         private final RectF realRect = new RectF();
 
-        private final Time time = new Time();
+        private final ClockSource clock = new ClockSource();
 
-        private BezierAnimator[] digits = {
-                new BezierAnimator(36000.0f, 5.0f),
-                new BezierAnimator(3600.0f, 5.0f),
-                new BezierAnimator(600.0f, 5.0f),
-                new BezierAnimator(60.0f, 5.0f),
-                new BezierAnimator(10.0f, 2.0f),
-                new BezierAnimator(1.0f, 1.0f),
+        private static final int DELAY = 16; //ms
+        private static final float CHANGE_THRESHOLD = 0.25f; //px
+
+        private final FrameScheduler scheduler = new FrameScheduler(DELAY);
+        private final Handler handler = new Handler();
+        // digits changed by frame updates that did not lead to a draw yet
+        private int pendingChanged = 0;
+        private final Runnable invalidateRunnable = new Runnable() {
+            @Override
+            public void run() {
+                // frames in which no digit moves by a visible amount are not drawn at all
+                clock.update();
+                int changed = updateFrame(clock.getMillis());
+                // hidden digits still get their paths rebuilt on the next draw, in case the tier shows them again
+                pendingChanged |= changed;
+                if ((changed & tier.getDigitMask()) != 0) {
+                    drawScheduledAt = System.nanoTime() + DELAY * 1000000L;
+                    invalidate();
+                } else {
+                    handler.postDelayed(this, scheduler.getDelay(getDayMillis()));
+                }
+            }
         };
 
+        private final FrameStats stats = new FrameStats(DELAY);
+        private long drawScheduledAt = 0;
+        private final Paint debugPaint = new Paint();
+        private final StringBuilder debugText = new StringBuilder();
+
+        private final ClockFrame frame = new ClockFrame();
+        // interactive digits in integer math, null unless the watch is a low-end one
+        private FixedClockFrame fixedFrame;
+
         private volatile boolean visible = true;
         private volatile boolean ambient = false;
         private volatile boolean lowbit = false;
@@ -68,9 +129,7 @@ public class BezierWatchFaceService extends CanvasWatchFaceService {
         @Override
         public void onCreate(SurfaceHolder holder) {
             super.onCreate(holder);
-            paint.setStrokeWidth(20);
             paint.setStyle(Paint.Style.STROKE);
-            paint.setAntiAlias(true);
             paint.setColor(foreground);
             paint.setStrokeCap(Paint.Cap.ROUND);
 
@@ -80,6 +139,24 @@ public class BezierWatchFaceService extends CanvasWatchFaceService {
             ambientPaint.setColor(ambientForeground);
             ambientPaint.setStrokeCap(Paint.Cap.ROUND);
 
+            debugPaint.setColor(Color.RED);
+            debugPaint.setAntiAlias(true);
+            debugPaint.setTextSize(16);
+
+            for (int i = 0; i < ClockFrame.COUNT; ++i) {
+                paths[i] = new SinkPath();
+            }
+
+            power = new AndroidPowerState(BezierWatchFaceService.this);
+            policy = new QualityPolicy(power);
+            applyTier(QualityTier.HIGH);
+
+            // low RAM watches tend to have weak FPUs and small caches too
+            ActivityManager activityManager = (ActivityManager)getSystemService(Context.ACTIVITY_SERVICE);
+            if (activityManager.isLowRamDevice()) {
+                fixedFrame = new FixedClockFrame(shifts);
+            }
+
             setWatchFaceStyle(new WatchFaceStyle.Builder(BezierWatchFaceService.this)
                     .setShowSystemUiTime(false)
                     .setStatusBarGravity(Gravity.END | Gravity.TOP)
@@ -92,6 +169,15 @@ public class BezierWatchFaceService extends CanvasWatchFaceService {
                     .build());
         }
 
+        @Override
+        public void onDestroy() {
+            handler.removeCallbacks(invalidateRunnable);
+            power.stop();
+            glyphCache.evict();
+            releaseLayer();
+            super.onDestroy();
+        }
+
         @Override
         public void onTimeTick() {
             super.onTimeTick();
@@ -103,11 +189,14 @@ public class BezierWatchFaceService extends CanvasWatchFaceService {
             this.visible = visible;
             if (visible) {
                 registerReceiver();
-                time.clear(TimeZone.getDefault().getID());
-                time.setToNow();
+                clock.setTimeZone(TimeZone.getDefault());
+                power.start(powerListener, handler);
+                updateTier();
                 invalidate();
             } else {
                 unregisterReceiver();
+                power.stop();
+                handler.removeCallbacks(invalidateRunnable);
             }
         }
 
@@ -115,7 +204,11 @@ public class BezierWatchFaceService extends CanvasWatchFaceService {
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
             ambient = inAmbientMode;
+            if (inAmbientMode) {
+                releaseLayer();
+            }
             ambientPaint.setAntiAlias(!lowbit || !inAmbientMode);
+            handler.removeCallbacks(invalidateRunnable);
             invalidate();
         }
 
@@ -124,121 +217,205 @@ public class BezierWatchFaceService extends CanvasWatchFaceService {
             super.onPropertiesChanged(properties);
             lowbit = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
             burnin = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+            glyphCache.evict();
+        }
+
+        @Override
+        public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+            super.onSurfaceChanged(holder, format, width, height);
+            glyphCache.evict();
+            releaseLayer();
+        }
+
+        /**
+         * Re-reads the power state and applies the new tier to interactive mode.
+         *
+         * @return whether the tier changed
+         */
+        private boolean updateTier() {
+            powerCheckedAt = System.nanoTime();
+            if (!policy.update()) {
+                return false;
+            }
+            applyTier(policy.getTier());
+            return true;
+        }
+
+        private void applyTier(QualityTier tier) {
+            this.tier = tier;
+            paint.setAntiAlias(tier.antiAlias);
+            paint.setDither(tier.dither);
+            paint.setStrokeWidth(STROKE_WIDTH * tier.strokeScale);
+            scheduler.setFrameDelay(tier.frameDelay);
+            scheduler.setDigitCount(tier.getDigitCount());
+            layer.invalidate();
+        }
+
+        private void releaseLayer() {
+            layer.release();
+            layerBounds.setEmpty();
         }
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
-            time.setToNow();
+            handler.removeCallbacks(invalidateRunnable);
+            stats.beginFrame(drawScheduledAt == 0 ? 0 : System.nanoTime() - drawScheduledAt);
+            drawScheduledAt = 0;
+            begin(FrameStats.TIME);
+            clock.update();
+            end(FrameStats.TIME);
             if (isInAmbientMode()) {
                 drawAmbient(canvas, bounds);
             } else {
                 drawInteractive(canvas, bounds);
             }
+            stats.endFrame();
+        }
+
+        private void begin(int phase) {
+            stats.begin(phase);
+            if (BuildConfig.DEBUG) {
+                Trace.beginSection(FrameStats.getName(phase));
+            }
+        }
+
+        private void end(int phase) {
+            if (BuildConfig.DEBUG) {
+                Trace.endSection();
+            }
+            stats.end(phase);
+        }
+
+        private void drawStats(Canvas canvas, Rect bounds) {
+            Histogram frames = stats.getHistogram(FrameStats.FRAME);
+            float lineHeight = debugPaint.getTextSize() * 1.25f;
+            debugText.setLength(0);
+            debugText.append("p99 ");
+            FrameStats.appendMillis(debugText, frames.getPercentile(99));
+            canvas.drawText(debugText, 0, debugText.length(), bounds.centerX() - lineHeight * 3, bounds.top + lineHeight * 2, debugPaint);
+            debugText.setLength(0);
+            debugText.append("missed ").append(stats.getMissed()).append('/').append(frames.getCount());
+            canvas.drawText(debugText, 0, debugText.length(), bounds.centerX() - lineHeight * 3, bounds.top + lineHeight * 3, debugPaint);
+        }
+
+        @Override
+        protected void dump(String prefix, FileDescriptor fd, PrintWriter out, String[] args) {
+            super.dump(prefix, fd, out, args);
+            out.print(prefix);
+            out.println("Frame stats:");
+            stats.dump(out, prefix + "  ");
         }
 
         private void drawInteractive(Canvas canvas, Rect bounds) {
             realRect.set(bounds);
             matrix.setRectToRect(modelRect, realRect, Matrix.ScaleToFit.CENTER);
-            canvas.setMatrix(matrix);
-            canvas.drawColor(background);
+            matrix.getValues(matrixValues);
+            frame.setChangeThreshold(CHANGE_THRESHOLD, matrixValues[Matrix.MSCALE_X]);
+            if (!layerBounds.equals(bounds)) {
+                layerBounds.set(bounds);
+                layer.setBounds(modelRect, matrix);
+            }
 
-            int millis = (int)(System.currentTimeMillis() % 1000);
-
-            int secondsUnit = time.second % 10;
-            int secondsTen = time.second / 10;
-            float secondsUnitRatio = millis / 1000.0f;
-            float secondsTenRatio = (secondsUnit * 1000 + millis) / 10000.0f;
-            digits[5].update(secondsUnit, getNextInt(secondsUnit, 10), secondsUnitRatio);
-            digits[4].update(secondsTen, getNextInt(secondsTen, 6), secondsTenRatio);
-
-            // Minutes
-            int minutesUnit = time.minute % 10;
-            int minutesTen = time.minute / 10;
-            float minutesUnitRatio = (time.second * 1000 + millis) / 60000.0f;
-            float minutesTenRatio = (minutesUnit * 60000 + time.second * 1000 + millis) / 600000.0f;
-            digits[3].update(minutesUnit, getNextInt(minutesUnit, 10), minutesUnitRatio);
-            digits[2].update(minutesTen, getNextInt(minutesTen, 6), minutesTenRatio);
-
-            // Hours
-            int hoursUnit = time.hour % 10;
-            int hoursTen = time.hour / 10;
-            float hoursUnitRatio = (time.minute * 60000 + time.second * 1000 + millis) / 3600000.0f;
-            float hoursTenRatio;
-            int hoursUnitNext;
-            if (time.hour == 23) {
-                hoursUnitNext = 0;
-                hoursTenRatio = (hoursUnit * 3600000 + time.minute * 60000 + time.second * 1000 + millis) / ( 4 * 3600000.0f);
-            } else {
-                hoursUnitNext = getNextInt(hoursUnit, 10);
-                hoursTenRatio = (hoursUnit * 3600000 + time.minute * 60000 + time.second * 1000 + millis) / 36000000.0f;
+            begin(FrameStats.UPDATE);
+            int changed = updateFrame(clock.getMillis()) | pendingChanged;
+            pendingChanged = 0;
+            end(FrameStats.UPDATE);
+
+            begin(FrameStats.PATH);
+            for (int i = 0; i < ClockFrame.COUNT; ++i) {
+                // includes digits updated by invalidateRunnable, whose paths were not rebuilt then
+                if ((changed & (1 << i)) != 0) {
+                    paths[i].reset();
+                    if (fixedFrame != null) {
+                        fixedFrame.build(paths[i], i);
+                    } else {
+                        DigitPath.build(paths[i], shifts[i], frame.points, i * ClockFrame.STRIDE);
+                    }
+                }
             }
+            end(FrameStats.PATH);
 
-            digits[1].update(hoursUnit, hoursUnitNext, hoursUnitRatio);
-            digits[0].update(hoursTen, getNextInt(hoursTen, 3), hoursTenRatio);
-
-            path.reset();
-            for (int i = 0; i < 6; ++i) {
-                path.moveTo(shifts[i] + digits[i].points[0], digits[i].points[1]);
-                for (int j = 0, k = 2; j < 4; ++j) {
-                    path.cubicTo(
-                            shifts[i] + digits[i].points[k++], digits[i].points[k++],
-                            shifts[i] + digits[i].points[k++], digits[i].points[k++],
-                            shifts[i] + digits[i].points[k++], digits[i].points[k++]);
+            if (System.nanoTime() - powerCheckedAt > POWER_CHECK_INTERVAL) {
+                // there is no thermal broadcast, so the power state is also checked while drawing
+                updateTier();
+            }
+
+            begin(FrameStats.DRAW);
+            // static digits come from the layer, only the morphing ones are drawn as paths
+            int visibleDigits = tier.getDigitMask();
+            int animating = (fixedFrame != null ? fixedFrame.getAnimating() : frame.getAnimating()) & visibleDigits;
+            int staticMask = visibleDigits & ~animating;
+            if (layer.isStale(staticMask, changed)) {
+                Canvas layerCanvas = layer.begin(staticMask);
+                layerCanvas.drawColor(background);
+                for (int i = 0; i < ClockFrame.COUNT; ++i) {
+                    if ((staticMask & (1 << i)) != 0) {
+                        layerCanvas.drawPath(paths[i], paint);
+                    }
                 }
+                layer.end();
             }
 
-            canvas.drawPath(path, paint);
+            canvas.setMatrix(null);
+            canvas.drawColor(background);
+            layer.draw(canvas);
+            canvas.setMatrix(matrix);
+            for (int i = 0; i < ClockFrame.COUNT; ++i) {
+                if ((animating & (1 << i)) != 0) {
+                    canvas.drawPath(paths[i], paint);
+                }
+            }
+            if (BuildConfig.DEBUG) {
+                canvas.setMatrix(null);
+                drawStats(canvas, bounds);
+            }
+            end(FrameStats.DRAW);
 
             if (visible && !ambient) {
-                invalidate();
+                long delay = scheduler.getDelay(getDayMillis());
+                handler.postDelayed(invalidateRunnable, delay);
             }
         }
 
+        private int updateFrame(long millis) {
+            return fixedFrame != null ? fixedFrame.update(millis) : frame.update(millis);
+        }
+
+        private long getDayMillis() {
+            return fixedFrame != null ? fixedFrame.getDayMillis() : frame.getDayMillis();
+        }
+
         private void drawAmbient(Canvas canvas, Rect bounds) {
             realRect.set(bounds);
-            if (burnin) {
-                realRect.inset(10, 10);
-            }
+            float inset = burnin ? 10 : 0;
+            realRect.inset(inset, inset);
             matrix.setRectToRect(ambientRect, realRect, Matrix.ScaleToFit.CENTER);
-            canvas.setMatrix(matrix);
+            matrix.getValues(matrixValues);
+            canvas.setMatrix(null);
             canvas.drawColor(ambientBackground);
 
-            // Minutes
-            int minutesUnit = time.minute % 10;
-            int minutesTen = time.minute / 10;
-            digits[3].update(minutesUnit);
-            digits[2].update(minutesTen);
-
-            // Hours
-            int hoursUnit = time.hour % 10;
-            int hoursTen = time.hour / 10;
-            digits[1].update(hoursUnit);
-            digits[0].update(hoursTen);
-
-            path.reset();
+            // Hours and minutes only, blitted from pre-rendered glyphs
+            glyphCache.configure(matrixValues[Matrix.MSCALE_X], ambientPaint, inset);
+            // plain digits, the interactive frame must not see this time as drawn
+            int hour = clock.getHour();
+            int minute = clock.getMinute();
+            ambientDigits[0] = hour / 10;
+            ambientDigits[1] = hour % 10;
+            ambientDigits[2] = minute / 10;
+            ambientDigits[3] = minute % 10;
             for (int i = 0; i < 4; ++i) {
-                path.moveTo(shifts[i] + digits[i].points[0], digits[i].points[1]);
-                for (int j = 0, k = 2; j < 4; ++j) {
-                    path.cubicTo(
-                            shifts[i] + digits[i].points[k++], digits[i].points[k++],
-                            shifts[i] + digits[i].points[k++], digits[i].points[k++],
-                            shifts[i] + digits[i].points[k++], digits[i].points[k++]);
-                }
+                glyphOrigin[0] = shifts[i];
+                glyphOrigin[1] = 0.0f;
+                matrix.mapPoints(glyphOrigin);
+                glyphCache.draw(canvas, ambientDigits[i], glyphOrigin[0], glyphOrigin[1]);
             }
-
-            canvas.drawPath(path, ambientPaint);
-        }
-
-        private int getNextInt(int current, int max) {
-            return (current + 1) % max;
         }
 
         private boolean timeZoneReceiverRegistered = false;
         private final BroadcastReceiver timeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                time.clear(intent.getStringExtra("time-zone"));
-                time.setToNow();
+                clock.setTimeZone(TimeZone.getTimeZone(intent.getStringExtra("time-zone")));
                 invalidate();
             }
         };
@@ -0,0 +1,91 @@
+package net.olegg.bezierclock.watchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import net.olegg.bezierclock.common.SinkPath;
+import net.olegg.bezierclock.core.BezierDigit;
+import net.olegg.bezierclock.core.DigitPath;
+
+/**
+ * Pre-rendered static digits for ambient mode.
+ * Glyphs are rendered lazily for the current scale and paint, and dropped as soon as any of them changes.
+ */
+class GlyphCache {
+    // model space cell around a single digit, including the stroke
+    private static final float CELL_LEFT = 0.0f;
+    private static final float CELL_TOP = -50.0f;
+    private static final float CELL_WIDTH = 500.0f;
+    private static final float CELL_HEIGHT = 600.0f;
+
+    private final Bitmap[] glyphs = new Bitmap[BezierDigit.DIGITS.length];
+    private final Canvas glyphCanvas = new Canvas();
+    private final SinkPath path = new SinkPath();
+    private final Paint paint = new Paint();
+
+    private float scale = 0.0f;
+    private int color = Color.TRANSPARENT;
+    private boolean antiAlias = false;
+    private float strokeWidth = 0.0f;
+    private float inset = 0.0f;
+
+    /**
+     * Makes the cache match the given output scale, paint and burn-in inset, evicting on any mismatch.
+     */
+    public void configure(float scale, Paint source, float inset) {
+        if (scale == this.scale
+                && source.getColor() == color
+                && source.isAntiAlias() == antiAlias
+                && source.getStrokeWidth() == strokeWidth
+                && inset == this.inset) {
+            return;
+        }
+        evict();
+        this.scale = scale;
+        this.inset = inset;
+        color = source.getColor();
+        antiAlias = source.isAntiAlias();
+        strokeWidth = source.getStrokeWidth();
+        paint.set(source);
+    }
+
+    /**
+     * Blits {@code digit} with its model origin at the screen point ({@code x}, {@code y}).
+     */
+    public void draw(Canvas canvas, int digit, float x, float y) {
+        Bitmap glyph = glyphs[digit];
+        if (glyph == null) {
+            glyph = render(digit);
+            glyphs[digit] = glyph;
+        }
+        canvas.drawBitmap(glyph, Math.round(x + CELL_LEFT * scale), Math.round(y + CELL_TOP * scale), null);
+    }
+
+    private Bitmap render(int digit) {
+        int width = (int)Math.ceil(CELL_WIDTH * scale);
+        int height = (int)Math.ceil(CELL_HEIGHT * scale);
+        Bitmap glyph = Bitmap.createBitmap(Math.max(width, 1), Math.max(height, 1), Bitmap.Config.ARGB_8888);
+        glyphCanvas.setBitmap(glyph);
+        glyphCanvas.save();
+        glyphCanvas.translate(-CELL_LEFT * scale, -CELL_TOP * scale);
+        glyphCanvas.scale(scale, scale);
+        path.reset();
+        DigitPath.build(path, 0.0f, BezierDigit.DIGITS[digit].vertices, 0);
+        glyphCanvas.drawPath(path, paint);
+        glyphCanvas.restore();
+        glyphCanvas.setBitmap(null);
+        return glyph;
+    }
+
+    public void evict() {
+        for (int i = 0; i < glyphs.length; ++i) {
+            if (glyphs[i] != null) {
+                glyphs[i].recycle();
+                glyphs[i] = null;
+            }
+        }
+        scale = 0.0f;
+    }
+}